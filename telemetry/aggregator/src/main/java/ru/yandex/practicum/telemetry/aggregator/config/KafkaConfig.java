@@ -2,12 +2,13 @@ package ru.yandex.practicum.telemetry.aggregator.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.aggregator.service.store.SnapshotChangelog;
 
 import java.util.Properties;
 
@@ -30,19 +31,30 @@ public class KafkaConfig {
     @Value("${spring.kafka.producer.acks}")
     private String acks;
 
+    @Value("${app.aggregation.transaction.enabled:false}")
+    private boolean transactional;
+
+    @Value("${app.aggregation.transaction.transactional-id:${spring.kafka.producer.client-id}}")
+    private String transactionalId;
+
     @Value("${app.kafka.topics.sensor-events}")
     private String sensorTopic;
 
+    @Value("${app.kafka.topics.changelog:telemetry.aggregator.changelog.v1}")
+    private String changelogTopic;
+
     @Bean
-    public KafkaConsumer<String, SensorEventAvro> getKafkaConsumer() {
+    public KafkaConsumer<String, byte[]> getKafkaConsumer() {
         Properties props = new Properties();
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
-        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer");
+        props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
         props.put("specific.avro.reader", "true");
+        // при ребалансировке отзываются только переезжающие партиции, остальные обработчики сохраняют состояние
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
 
         log.info("Создан Kafka Consumer: bootstrap={}, group={}, topic={}", bootstrapServers, groupId, sensorTopic);
 
@@ -57,8 +69,29 @@ public class KafkaConfig {
         props.put(org.apache.kafka.clients.producer.ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
         props.put(org.apache.kafka.clients.producer.ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer");
         props.put(org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG, acks);
+        if (transactional) {
+            // транзакции требуют идемпотентного продюсера с подтверждением от всех реплик
+            props.put(org.apache.kafka.clients.producer.ProducerConfig.ACKS_CONFIG, "all");
+            props.put(org.apache.kafka.clients.producer.ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+            props.put(org.apache.kafka.clients.producer.ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+        }
 
-        log.info("Создан Kafka Producer: bootstrap={}, client={}", bootstrapServers, clientId);
+        log.info("Создан Kafka Producer: bootstrap={}, client={}, transactional.id={}",
+                bootstrapServers, clientId, transactional ? transactionalId : null);
         return new KafkaProducer<>(props);
     }
+
+    @Bean
+    public SnapshotChangelog getSnapshotChangelog(KafkaProducer<String, Object> producer) {
+        // консьюмер журнала читает партиции напрямую, без группы, и создаётся только на время восстановления
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        // изменения из отменённых транзакций не должны попасть в восстановленное состояние
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+        return new SnapshotChangelog(changelogTopic, props, producer);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.telemetry.aggregator.mapper;
+
+import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.time.Instant;
+
+/**
+ * Преобразует события датчиков, записанные коллектором в формате protobuf, в события Avro.
+ */
+public final class SensorEventProtoMapper {
+
+    private SensorEventProtoMapper() {
+    }
+
+    public static SensorEventAvro toAvro(SensorEventProto event) {
+        Instant timestamp = Instant.ofEpochSecond(event.getTimestamp().getSeconds(), event.getTimestamp().getNanos());
+        return SensorEventAvro.newBuilder()
+                .setId(event.getId())
+                .setHubId(event.getHubId())
+                .setTimestamp(timestamp)
+                .setPayload(toPayload(event, timestamp))
+                .build();
+    }
+
+    private static Object toPayload(SensorEventProto event, Instant timestamp) {
+        return switch (event.getPayloadCase()) {
+            case CLIMATE_SENSOR_EVENT -> {
+                ClimateSensorProto climate = event.getClimateSensorEvent();
+                yield new ClimateSensorAvro(climate.getTemperatureC(), climate.getHumidity(), climate.getCo2Level());
+            }
+            case LIGHT_SENSOR_EVENT -> {
+                LightSensorProto light = event.getLightSensorEvent();
+                yield new LightSensorAvro(light.getLinkQuality(), light.getLuminosity());
+            }
+            case MOTION_SENSOR_EVENT -> {
+                MotionSensorProto motion = event.getMotionSensorEvent();
+                yield new MotionSensorAvro(motion.getLinkQuality(), motion.getMotion(), motion.getVoltage());
+            }
+            case SWITCH_SENSOR_EVENT -> {
+                SwitchSensorProto switchSensor = event.getSwitchSensorEvent();
+                yield new SwitchSensorAvro(switchSensor.getState());
+            }
+            case TEMPERATURE_SENSOR_EVENT -> {
+                TemperatureSensorProto temperature = event.getTemperatureSensorEvent();
+                yield new TemperatureSensorAvro(event.getId(), event.getHubId(), timestamp,
+                        temperature.getTemperatureC(), temperature.getTemperatureF());
+            }
+            case PAYLOAD_NOT_SET -> throw new IllegalArgumentException("Событие датчика " + event.getId() + " без показаний");
+        };
+    }
+}
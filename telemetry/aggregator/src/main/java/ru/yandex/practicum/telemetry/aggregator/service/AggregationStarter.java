@@ -2,18 +2,31 @@ package ru.yandex.practicum.telemetry.aggregator.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.telemetry.aggregator.service.store.SnapshotChangelog;
+import ru.yandex.practicum.telemetry.aggregator.service.store.SnapshotStore;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
@@ -29,12 +42,80 @@ public class AggregationStarter {
     @Value("${spring.kafka.consumer.poll-timeout}")
     private Duration pollTimeout;
 
-    private final SnapshotService snapshotService;
+    @Value("${app.kafka.schema-version.sensor-events:v1}")
+    private SchemaVersion sensorEventsSchema;
 
-    private final KafkaConsumer<String, SensorEventAvro> consumer;
+    @Value("${app.kafka.schema-version.snapshots:v1}")
+    private SchemaVersion snapshotsSchema;
+
+    @Value("${app.aggregation.queue-capacity:4}")
+    private int queueCapacity;
+
+    @Value("${app.aggregation.state-store.enabled:false}")
+    private boolean stateStoreEnabled;
+
+    @Value("${app.aggregation.state-store.directory:/var/lib/aggregator/state}")
+    private Path stateStoreDirectory;
+
+    @Value("${app.aggregation.state-store.checkpoint-interval:30s}")
+    private Duration checkpointInterval;
+
+    @Value("${app.aggregation.changelog.enabled:false}")
+    private boolean changelogEnabled;
+
+    @Value("${app.aggregation.transaction.enabled:false}")
+    private boolean transactional;
+
+    @Value("${app.aggregation.transaction.max-records:5000}")
+    private int transactionMaxRecords;
+
+    @Value("${app.aggregation.transaction.max-interval:100ms}")
+    private Duration transactionMaxInterval;
+
+    @Value("${app.aggregation.coalescing.enabled:false}")
+    private boolean coalescing;
+
+    @Value("${app.aggregation.coalescing.max-delay:0ms}")
+    private Duration coalescingMaxDelay;
+
+    @Value("${app.aggregation.deltas.enabled:false}")
+    private boolean deltasEnabled;
+
+    @Value("${app.kafka.topics.snapshot-deltas:telemetry.snapshots.delta.v1}")
+    private String deltasTopic;
+
+    @Value("${app.aggregation.deltas.full-every:100}")
+    private int deltasFullEvery;
+
+    @Value("${app.aggregation.deltas.full-interval:1m}")
+    private Duration deltasFullInterval;
+
+    // значения читаются как байты и декодируются обработчиками партиций
+    private final KafkaConsumer<String, byte[]> consumer;
 
     private final KafkaProducer<String, Object> producer;
 
+    private final SnapshotChangelog changelog;
+
+    // консьюмер используется только потоком опроса; события каждой партиции обрабатывает свой поток
+    private final Map<TopicPartition, PartitionWorker> workers = new HashMap<>();
+
+    // записи приостановленных партиций, которые не поместились в очередь обработчика
+    private final Map<TopicPartition, List<ConsumerRecord<String, byte[]>>> pending = new HashMap<>();
+
+    private final Map<TopicPartition, Long> committed = new HashMap<>();
+
+    // оффсет, следующий за последней переданной обработчику записью партиции
+    private final Map<TopicPartition, Long> dispatched = new HashMap<>();
+
+    private PartitionWorker.Settings settings;
+
+    private boolean inTransaction;
+
+    private long transactionStart;
+
+    private int transactionRecords;
+
     public void start() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Получен сигнал завершения. Останавливаем агрегатор.");
@@ -42,23 +123,83 @@ public class AggregationStarter {
         }));
 
         try {
-            consumer.subscribe(Collections.singletonList(sensorTopic));
+            settings = new PartitionWorker.Settings(queueCapacity, snapshotsTopic,
+                    sensorEventsSchema, snapshotsSchema,
+                    stateStoreEnabled ? new SnapshotStore(stateStoreDirectory) : null, checkpointInterval,
+                    changelogEnabled ? changelog : null, transactional, coalescing, coalescingMaxDelay,
+                    deltasEnabled ? new PartitionWorker.Deltas(deltasTopic, deltasFullEvery, deltasFullInterval) : null);
+            if (transactional) {
+                producer.initTransactions();
+            }
 
-            log.info("Подписались на топик: {}", sensorTopic);
+            consumer.subscribe(Collections.singletonList(sensorTopic), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    startWorkers(partitions, false);
+                    log.info("Назначены партиции: {}", partitions);
+                }
+
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    log.info("Отзываются партиции: {}", partitions);
+                    if (transactional) {
+                        // новый владелец начнёт с оффсетов, зафиксированных вместе с уже отправленными снапшотами
+                        if (inTransaction) {
+                            commitTransaction();
+                        }
+                        stopWorkers(partitions);
+                        return;
+                    }
+                    Map<TopicPartition, OffsetAndMetadata> offsets = stopWorkers(partitions);
+                    // снапшоты должны быть записаны до фиксации оффсетов, после которой партицию читает новый владелец
+                    producer.flush();
+                    if (!offsets.isEmpty()) {
+                        consumer.commitSync(offsets);
+                    }
+                }
+
+                @Override
+                public void onPartitionsLost(Collection<TopicPartition> partitions) {
+                    log.warn("Партиции потеряны без фиксации оффсетов: {}", partitions);
+                    if (transactional && inTransaction) {
+                        // транзакция отменяется целиком, поэтому остальные партиции тоже перечитываются
+                        // с зафиксированных оффсетов с заново восстановленным состоянием
+                        List<TopicPartition> remaining = new ArrayList<>(workers.keySet());
+                        remaining.removeAll(partitions);
+                        stopWorkers(workers.keySet());
+                        abortTransaction();
+                        startWorkers(remaining, true);
+                        return;
+                    }
+                    stopWorkers(partitions);
+                }
+            });
+
+            log.info("Подписались на топик: {}, схема событий {}, схема снапшотов {}, транзакции {}, объединение {}, дельты {}",
+                    sensorTopic, sensorEventsSchema, snapshotsSchema, transactional, coalescing, deltasEnabled);
 
             while (true) {
 
-                ConsumerRecords<String, SensorEventAvro> records = consumer.poll(pollTimeout);
+                ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
+
+                if (transactional) {
+                    for (TopicPartition partition : records.partitions()) {
+                        dispatchInTransaction(partition, records.records(partition));
+                    }
+                    transactionRecords += records.count();
+                    if (inTransaction && (transactionRecords >= transactionMaxRecords
+                            || System.nanoTime() - transactionStart >= transactionMaxInterval.toNanos())) {
+                        commitTransaction();
+                    }
+                    continue;
+                }
 
-                for (ConsumerRecord<String, SensorEventAvro> record : records) {
-                    log.debug("Обрабатываем событие: {}", record.value());
-                    snapshotService.updateState(record.value())
-                            .ifPresent(snapshot -> {
-                                log.info("Отправляем обновленный снапшот для хаба: {}", snapshot.getHubId());
-                                producer.send(new ProducerRecord<>(snapshotsTopic, snapshot.getHubId(), snapshot));
-                            });
+                for (TopicPartition partition : records.partitions()) {
+                    dispatch(partition, records.records(partition));
                 }
-                consumer.commitSync();
+                resumeAccepted();
+                checkWorkers();
+                commitProcessed();
             }
         } catch (WakeupException ignored) {
             log.info("Получен WakeupException - завершаем работу");
@@ -67,10 +208,17 @@ public class AggregationStarter {
         } finally {
 
             try {
+                if (transactional) {
+                    finishTransaction();
+                }
+                log.info("Останавливаем обработчики партиций");
+                Map<TopicPartition, OffsetAndMetadata> offsets = stopWorkers(new ArrayList<>(workers.keySet()));
                 log.info("Сбрасываем данные из буфера продюсера");
                 producer.flush();
                 log.info("Фиксируем оффсеты обработанных сообщений.");
-                consumer.commitSync();
+                if (!offsets.isEmpty()) {
+                    consumer.commitSync(offsets);
+                }
                 log.info("Все данные сохранены, можно завершать работу");
 
             } finally {
@@ -81,4 +229,172 @@ public class AggregationStarter {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Создаёт обработчики партиций.
+     *
+     * @param rewind перечитать партиции с зафиксированных оффсетов, а не продолжать с текущей позиции консьюмера
+     */
+    private void startWorkers(Collection<TopicPartition> partitions, boolean rewind) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = settings.store() != null || transactional
+                ? consumer.committed(new HashSet<>(partitions))
+                : Map.of();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = offsets.get(partition);
+            PartitionWorker worker = new PartitionWorker(partition, settings, producer,
+                    offset == null ? -1 : offset.offset());
+            workers.put(partition, worker);
+            if (offset != null) {
+                committed.put(partition, offset.offset());
+            }
+            if (worker.getPosition() >= 0) {
+                // состояние загружено из локального снимка - дочитываем партицию с его оффсета
+                consumer.seek(partition, worker.getPosition());
+            } else if (rewind && offset != null) {
+                consumer.seek(partition, offset);
+            } else if (rewind) {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+    }
+
+    private void dispatchInTransaction(TopicPartition partition, List<ConsumerRecord<String, byte[]>> records) {
+        PartitionWorker worker = workers.get(partition);
+        if (worker == null) {
+            return;
+        }
+        if (!inTransaction) {
+            producer.beginTransaction();
+            inTransaction = true;
+            transactionStart = System.nanoTime();
+        }
+        // поток опроса всё равно дождётся обработки перед фиксацией, поэтому просто ждёт места в очереди
+        worker.put(records);
+        dispatched.put(partition, records.get(records.size() - 1).offset() + 1);
+    }
+
+    /**
+     * Дожидается обработки всех переданных записей и фиксирует транзакцию вместе с оффсетами.
+     */
+    private void commitTransaction() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (PartitionWorker worker : workers.values()) {
+            Long target = dispatched.get(worker.getPartition());
+            if (target != null) {
+                worker.awaitPosition(target);
+            }
+            long position = worker.committablePosition();
+            if (position > committed.getOrDefault(worker.getPartition(), -1L)) {
+                offsets.put(worker.getPartition(), new OffsetAndMetadata(position));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            producer.sendOffsetsToTransaction(offsets, consumer.groupMetadata());
+        }
+        producer.commitTransaction();
+        offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+        log.debug("Зафиксирована транзакция: {} записей, оффсеты {}", transactionRecords, offsets);
+        inTransaction = false;
+        transactionRecords = 0;
+    }
+
+    private void finishTransaction() {
+        if (!inTransaction) {
+            return;
+        }
+        try {
+            log.info("Фиксируем открытую транзакцию");
+            commitTransaction();
+        } catch (Exception e) {
+            log.error("Не удалось зафиксировать транзакцию, отменяем", e);
+            stopWorkers(workers.keySet());
+            abortTransaction();
+        }
+    }
+
+    private void abortTransaction() {
+        try {
+            producer.abortTransaction();
+        } catch (KafkaException e) {
+            log.error("Не удалось отменить транзакцию", e);
+        }
+        inTransaction = false;
+        transactionRecords = 0;
+    }
+
+    private void dispatch(TopicPartition partition, List<ConsumerRecord<String, byte[]>> records) {
+        PartitionWorker worker = workers.get(partition);
+        if (worker == null) {
+            return;
+        }
+        if (!worker.offer(records)) {
+            // очередь обработчика заполнена - не читаем партицию, пока он не разберёт накопленное
+            consumer.pause(List.of(partition));
+            pending.put(partition, records);
+        }
+    }
+
+    private void resumeAccepted() {
+        Iterator<Map.Entry<TopicPartition, List<ConsumerRecord<String, byte[]>>>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TopicPartition, List<ConsumerRecord<String, byte[]>>> entry = iterator.next();
+            if (workers.get(entry.getKey()).offer(entry.getValue())) {
+                iterator.remove();
+                consumer.resume(List.of(entry.getKey()));
+            }
+        }
+    }
+
+    private void checkWorkers() {
+        for (PartitionWorker worker : workers.values()) {
+            if (worker.getFailure() != null) {
+                throw new IllegalStateException("Обработчик партиции " + worker.getPartition() + " завершился с ошибкой",
+                        worker.getFailure());
+            }
+        }
+    }
+
+    private void commitProcessed() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (PartitionWorker worker : workers.values()) {
+            long position = worker.committablePosition();
+            if (position > committed.getOrDefault(worker.getPartition(), -1L)) {
+                offsets.put(worker.getPartition(), new OffsetAndMetadata(position));
+            }
+        }
+        if (!offsets.isEmpty()) {
+            if (changelogEnabled) {
+                // состояние восстанавливается из журнала изменений, поэтому его записи должны дойти до брокера
+                // раньше, чем зафиксируются позиции событий, после которых они отправлены
+                producer.flush();
+            }
+            consumer.commitSync(offsets);
+            offsets.forEach((partition, offset) -> committed.put(partition, offset.offset()));
+        }
+    }
+
+    /**
+     * Останавливает обработчики партиций и возвращает ещё не зафиксированные позиции.
+     * Записи, которые обработчики не успели разобрать, новый владелец партиции прочитает повторно.
+     */
+    private Map<TopicPartition, OffsetAndMetadata> stopWorkers(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : new ArrayList<>(partitions)) {
+            pending.remove(partition);
+            dispatched.remove(partition);
+            PartitionWorker worker = workers.remove(partition);
+            Long last = committed.remove(partition);
+            if (worker == null) {
+                continue;
+            }
+            worker.close();
+            if (worker.committablePosition() > (last == null ? -1L : last)) {
+                offsets.put(partition, new OffsetAndMetadata(worker.committablePosition()));
+            }
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,433 @@
+package ru.yandex.practicum.telemetry.aggregator.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.header.Header;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.kafka.converter.SensorsSnapshotConverter;
+import ru.yandex.practicum.kafka.deserializer.SensorEventBatchDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventBatchV2Deserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventProtoDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventV2Deserializer;
+import ru.yandex.practicum.kafka.serializer.ProtobufSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventBatchAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+import ru.yandex.practicum.telemetry.aggregator.mapper.SensorEventProtoMapper;
+import ru.yandex.practicum.telemetry.aggregator.service.store.SnapshotChangelog;
+import ru.yandex.practicum.telemetry.aggregator.service.store.SnapshotStore;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обрабатывает записи одной партиции топика событий датчиков в отдельном потоке. У каждой партиции свой
+ * SnapshotService, поэтому состояние хабов не разделяется между потоками и не требует синхронизации.
+ * Записи передаются потоком опроса пачками в том виде, в каком их вернул poll.
+ * <p>
+ * Если задано хранилище состояния, обработчик при создании загружает снимок партиции, а затем периодически
+ * сохраняет его; зафиксировать в Kafka можно только оффсет последнего сохранённого снимка.
+ * Если локального снимка нет, состояние восстанавливается из журнала изменений, а чтение
+ * продолжается с зафиксированного оффсета.
+ * <p>
+ * В транзакционном режиме снапшоты и изменения состояния отправляются в открытую потоком опроса транзакцию,
+ * а оффсеты фиксируются в ней же; поток опроса дожидается обработки переданных записей через
+ * {@link #awaitPosition(long)}.
+ * <p>
+ * В режиме объединения снапшот хаба отправляется не на каждое изменение, а один раз после разбора пачки
+ * записей, в которой хаб изменился; с ненулевой задержкой изменения копятся между пачками не дольше неё.
+ * Позиция обработчика при этом продвигается только после отправки накопленных снапшотов.
+ * <p>
+ * В режиме дельт вместо SensorsSnapshotAvro отправляется SensorsSnapshotDeltaAvro только с изменившимися
+ * датчиками. Первая запись хаба после запуска обработчика и затем каждая {@code fullEvery}-я или старше
+ * {@code fullInterval} - полный снимок, с которого получатель может заново собрать состояние хаба.
+ */
+@Slf4j
+public class PartitionWorker implements AutoCloseable {
+    private static final List<ConsumerRecord<String, byte[]>> STOP = Collections.unmodifiableList(new ArrayList<>());
+
+    @Getter
+    private final TopicPartition partition;
+    private final SnapshotService snapshotService = new SnapshotService();
+    private final KafkaProducer<String, Object> producer;
+    private final Settings settings;
+    private final SnapshotStore store;
+    private final SnapshotChangelog changelog;
+    private final BlockingQueue<List<ConsumerRecord<String, byte[]>>> queue;
+    private final Thread thread;
+    // уведомляется после каждой разобранной пачки и при завершении потока
+    private final Object progress = new Object();
+
+    private final SensorEventDeserializer deserializer = new SensorEventDeserializer();
+    private final SensorEventBatchDeserializer batchDeserializer = new SensorEventBatchDeserializer();
+    private final SensorEventV2Deserializer deserializerV2 = new SensorEventV2Deserializer();
+    private final SensorEventBatchV2Deserializer batchDeserializerV2 = new SensorEventBatchV2Deserializer();
+    private final SensorEventProtoDeserializer protoDeserializer = new SensorEventProtoDeserializer();
+    // значения декодируются в переиспользуемые экземпляры, которые не покидают поток обработчика
+    private SensorEventAvro event;
+    private SensorEventBatchAvro batch;
+
+    // смещение, с которого продолжится чтение партиции после уже обработанных записей; -1 - ничего не обработано
+    @Getter
+    private volatile long position = -1;
+    // смещение после последней разобранной записи, включая изменения, снапшоты по которым ещё не отправлены
+    private long processed = -1;
+    // изменившиеся датчики хабов, снапшоты которых ещё не отправлены в режиме объединения
+    private final Map<String, Set<String>> dirty = new LinkedHashMap<>();
+    private final long coalescingDelay;
+    private long dirtySince;
+    // номера дельт хабов; хаба нет в карте, пока по нему не отправлен полный снимок
+    private final Map<String, DeltaSequence> sequences = new HashMap<>();
+    // оффсет последнего сохранённого снимка состояния
+    private volatile long checkpoint = -1;
+    // записи до этого оффсета уже обработаны прежним владельцем партиции, снапшоты по ним не отправляются
+    private final long replayUntil;
+    private boolean replaying;
+    private long nextCheckpoint;
+    @Getter
+    private volatile Throwable failure;
+    private volatile boolean stopping;
+
+    /**
+     * @param committed зафиксированный в Kafka оффсет партиции или -1
+     */
+    public PartitionWorker(TopicPartition partition, Settings settings, KafkaProducer<String, Object> producer,
+                           long committed) {
+        this.partition = partition;
+        this.settings = settings;
+        this.producer = producer;
+        this.store = settings.store();
+        this.changelog = settings.changelog();
+        this.replayUntil = committed;
+        SnapshotStore.Checkpoint restored = store != null ? store.load(partition) : null;
+        if (restored != null && settings.transactional() && restored.offset() > committed) {
+            // снимок сделан внутри транзакции, которая не была зафиксирована: её снапшоты отменены
+            log.warn("Снимок состояния партиции {} опережает зафиксированный оффсет {}, пропускаем",
+                    partition, committed);
+            restored = null;
+        }
+        if (restored != null) {
+            snapshotService.restore(restored.snapshots());
+            position = restored.offset();
+            checkpoint = restored.offset();
+        } else if (changelog != null) {
+            snapshotService.restore(changelog.restore(partition));
+        }
+        if (store != null) {
+            nextCheckpoint = System.nanoTime() + settings.checkpointInterval().toNanos();
+        }
+        // транзакция фиксируется вместе с позицией, поэтому изменения не переносятся через её границу
+        this.coalescingDelay = settings.transactional() ? 0 : settings.coalescingMaxDelay().toNanos();
+        // место для сигнала остановки резервируется сверх ёмкости очереди
+        this.queue = new ArrayBlockingQueue<>(settings.queueCapacity() + 1);
+        this.thread = Thread.ofPlatform().name("aggregator-" + partition).daemon().start(this::run);
+    }
+
+    /**
+     * Оффсет, который можно зафиксировать в Kafka; -1, если фиксировать нечего.
+     */
+    public long committablePosition() {
+        return store == null || settings.transactional() ? position : checkpoint;
+    }
+
+    /**
+     * Ставит записи партиции в очередь обработки.
+     *
+     * @return false, если очередь заполнена
+     */
+    public boolean offer(List<ConsumerRecord<String, byte[]>> records) {
+        return queue.remainingCapacity() > 1 && queue.offer(records);
+    }
+
+    /**
+     * Ставит записи партиции в очередь обработки, ожидая освобождения места.
+     */
+    public void put(List<ConsumerRecord<String, byte[]>> records) {
+        synchronized (progress) {
+            while (!offer(records)) {
+                checkAlive();
+                waitProgress();
+            }
+        }
+    }
+
+    /**
+     * Ждёт, пока будут обработаны все записи до оффсета {@code offset}, не включая его.
+     *
+     * @throws IllegalStateException если обработчик завершился, не дойдя до оффсета
+     */
+    public void awaitPosition(long offset) {
+        synchronized (progress) {
+            while (position < offset) {
+                checkAlive();
+                waitProgress();
+            }
+        }
+    }
+
+    private void checkAlive() {
+        if (failure != null || !thread.isAlive()) {
+            throw new IllegalStateException("Обработчик партиции " + partition + " остановлен", failure);
+        }
+    }
+
+    private void waitProgress() {
+        try {
+            progress.wait(100);
+        } catch (InterruptedException e) {
+            throw new InterruptException(e);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                List<ConsumerRecord<String, byte[]>> records = dirty.isEmpty()
+                        ? queue.take()
+                        : queue.poll(dirtySince + coalescingDelay - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (records == STOP) {
+                    sendDirty();
+                    return;
+                }
+                if (records != null) {
+                    for (ConsumerRecord<String, byte[]> record : records) {
+                        if (stopping) {
+                            sendDirty();
+                            return;
+                        }
+                        replaying = record.offset() < replayUntil;
+                        handle(record);
+                        processed = record.offset() + 1;
+                        if (dirty.isEmpty()) {
+                            position = processed;
+                        }
+                    }
+                }
+                if (!dirty.isEmpty() && System.nanoTime() - dirtySince >= coalescingDelay) {
+                    sendDirty();
+                }
+                if (store != null && dirty.isEmpty() && System.nanoTime() - nextCheckpoint >= 0) {
+                    checkpoint();
+                    nextCheckpoint = System.nanoTime() + settings.checkpointInterval().toNanos();
+                }
+                notifyProgress();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Ошибка обработки событий партиции {}", partition, e);
+            failure = e;
+        } finally {
+            notifyProgress();
+        }
+    }
+
+    private void notifyProgress() {
+        synchronized (progress) {
+            progress.notifyAll();
+        }
+    }
+
+    private void handle(ConsumerRecord<String, byte[]> record) {
+        // коллектор может отправлять события датчиков по одному, пачками по хабу или в protobuf
+        if (isProtobuf(record)) {
+            process(SensorEventProtoMapper.toAvro(protoDeserializer.deserialize(record.topic(), record.value())));
+        } else if (record.headers().lastHeader(SensorEventBatchDeserializer.BATCH_HEADER) != null) {
+            batch = settings.sensorEventsSchema() == SchemaVersion.V2
+                    ? batchDeserializerV2.deserialize(record.topic(), record.value())
+                    : batchDeserializer.deserialize(record.topic(), record.value(), batch);
+            log.debug("Обрабатываем пачку из {} событий хаба {}", batch.getEvents().size(), batch.getHubId());
+            for (SensorEventAvro batchEvent : batch.getEvents()) {
+                process(batchEvent);
+            }
+        } else {
+            event = settings.sensorEventsSchema() == SchemaVersion.V2
+                    ? deserializerV2.deserialize(record.topic(), record.value())
+                    : deserializer.deserialize(record.topic(), record.value(), event);
+            process(event);
+        }
+    }
+
+    private static boolean isProtobuf(ConsumerRecord<String, byte[]> record) {
+        Header format = record.headers().lastHeader(ProtobufSerializer.FORMAT_HEADER);
+        return format != null
+                && ProtobufSerializer.PROTOBUF_FORMAT.equals(new String(format.value(), StandardCharsets.UTF_8));
+    }
+
+    private void process(SensorEventAvro event) {
+        log.debug("Обрабатываем событие: {}", event);
+        snapshotService.updateState(event)
+                .filter(snapshot -> !replaying)
+                .ifPresent(snapshot -> {
+                    if (!settings.coalescing()) {
+                        send(snapshot, List.of(event.getId()));
+                        return;
+                    }
+                    if (dirty.isEmpty()) {
+                        dirtySince = System.nanoTime();
+                    }
+                    dirty.computeIfAbsent(snapshot.getHubId(), hubId -> new LinkedHashSet<>()).add(event.getId());
+                });
+    }
+
+    private void sendDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        log.debug("Отправляем объединённые снапшоты {} хабов", dirty.size());
+        for (Map.Entry<String, Set<String>> entry : dirty.entrySet()) {
+            send(snapshotService.getSnapshot(entry.getKey()), entry.getValue());
+        }
+        dirty.clear();
+        position = processed;
+    }
+
+    private void send(SensorsSnapshotAvro snapshot, Collection<String> sensorIds) {
+        if (changelog != null) {
+            for (String sensorId : sensorIds) {
+                changelog.append(partition, snapshot.getHubId(), sensorId, snapshot.getSensorsState().get(sensorId));
+            }
+        }
+        if (settings.deltas() != null) {
+            sendDelta(snapshot, sensorIds);
+            return;
+        }
+        log.info("Отправляем обновленный снапшот для хаба: {}", snapshot.getHubId());
+        Object value = settings.snapshotsSchema() == SchemaVersion.V2
+                ? SensorsSnapshotConverter.toV2(snapshot)
+                : snapshot;
+        producer.send(new ProducerRecord<>(settings.snapshotsTopic(), snapshot.getHubId(), value));
+    }
+
+    private void sendDelta(SensorsSnapshotAvro snapshot, Collection<String> sensorIds) {
+        Deltas deltas = settings.deltas();
+        long now = System.nanoTime();
+        DeltaSequence sequence = sequences.get(snapshot.getHubId());
+        boolean full = sequence == null
+                || sequence.sinceFull >= deltas.fullEvery()
+                || now - sequence.lastFull >= deltas.fullInterval().toNanos();
+        if (sequence == null) {
+            sequence = new DeltaSequence();
+            sequences.put(snapshot.getHubId(), sequence);
+        }
+
+        Map<String, SensorStateAvro> sensorsState;
+        if (full) {
+            // каждый полный снимок открывает новую серию, номера дельт разных серий не сравниваются;
+            // серия случайная, чтобы не совпасть с серией другого экземпляра или прошлого запуска
+            sensorsState = snapshot.getSensorsState();
+            sequence.epoch = ThreadLocalRandom.current().nextLong();
+            sequence.number = 0;
+            sequence.sinceFull = 0;
+            sequence.lastFull = now;
+        } else {
+            sensorsState = new HashMap<>();
+            for (String sensorId : sensorIds) {
+                sensorsState.put(sensorId, snapshot.getSensorsState().get(sensorId));
+            }
+            sequence.number++;
+            sequence.sinceFull++;
+        }
+        SensorsSnapshotDeltaAvro delta = SensorsSnapshotDeltaAvro.newBuilder()
+                .setHubId(snapshot.getHubId())
+                .setTimestamp(snapshot.getTimestamp())
+                .setEpoch(sequence.epoch)
+                .setSequence(sequence.number)
+                .setFull(full)
+                .setSensorsState(sensorsState)
+                .build();
+        log.info("Отправляем {} хаба {}, серия {}, номер {}", full ? "полный снапшот" : "дельту", snapshot.getHubId(),
+                sequence.epoch, sequence.number);
+        producer.send(new ProducerRecord<>(deltas.topic(), snapshot.getHubId(), delta));
+    }
+
+    private void checkpoint() {
+        long offset = position;
+        if (offset <= checkpoint) {
+            return;
+        }
+        // снимок не должен опережать отправленные снапшоты, иначе после сбоя они будут потеряны
+        producer.flush();
+        store.save(partition, offset, snapshotService.getSnapshots());
+        checkpoint = offset;
+    }
+
+    /**
+     * Останавливает обработку после текущей записи; записи, оставшиеся в очереди, отбрасываются
+     * и будут прочитаны заново с позиции {@link #committablePosition()}.
+     */
+    @Override
+    public void close() {
+        stopping = true;
+        queue.clear();
+        queue.offer(STOP);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (store != null && failure == null) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Общие для всех партиций параметры обработки.
+     *
+     * @param store              хранилище снимков состояния или null, если состояние хранится только в памяти
+     * @param changelog          журнал изменений состояния или null, если он не ведётся
+     * @param transactional      записи обрабатываются внутри транзакций продюсера
+     * @param coalescing         отправлять один снапшот хаба на пачку записей вместо снапшота на каждое изменение
+     * @param coalescingMaxDelay сколько изменения могут копиться между пачками; не действует в транзакционном режиме
+     * @param deltas             параметры отправки дельт или null, если отправляются полные снапшоты
+     */
+    public record Settings(int queueCapacity,
+                           String snapshotsTopic,
+                           SchemaVersion sensorEventsSchema,
+                           SchemaVersion snapshotsSchema,
+                           SnapshotStore store,
+                           Duration checkpointInterval,
+                           SnapshotChangelog changelog,
+                           boolean transactional,
+                           boolean coalescing,
+                           Duration coalescingMaxDelay,
+                           Deltas deltas) {
+    }
+
+    /**
+     * @param topic        топик дельт и полных снимков
+     * @param fullEvery    через сколько дельт хаба отправляется полный снимок
+     * @param fullInterval как часто отправляется полный снимок хаба, если он меняется
+     */
+    public record Deltas(String topic, int fullEvery, Duration fullInterval) {
+    }
+
+    private static class DeltaSequence {
+        private long epoch;
+        private long number;
+        private int sinceFull;
+        private long lastFull;
+    }
+}
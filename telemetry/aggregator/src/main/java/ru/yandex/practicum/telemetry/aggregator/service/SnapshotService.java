@@ -1,22 +1,45 @@
 package ru.yandex.practicum.telemetry.aggregator.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Service;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
 import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
 import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Состояние хабов, события которых пришли из одной партиции топика событий датчиков.
+ * Не потокобезопасен: каждым экземпляром владеет один {@link PartitionWorker}.
+ */
 @Slf4j
-@Service
 public class SnapshotService {
 
     private final Map<String, SensorsSnapshotAvro> snapshots = new HashMap<>();
 
+    public Collection<SensorsSnapshotAvro> getSnapshots() {
+        return snapshots.values();
+    }
+
+    public SensorsSnapshotAvro getSnapshot(String hubId) {
+        return snapshots.get(hubId);
+    }
+
+    /**
+     * Заменяет состояние хабов восстановленными снимками.
+     */
+    public void restore(Collection<SensorsSnapshotAvro> restored) {
+        snapshots.clear();
+        for (SensorsSnapshotAvro snapshot : restored) {
+            snapshots.put(snapshot.getHubId(), snapshot);
+        }
+    }
+
     public Optional<SensorsSnapshotAvro> updateState(SensorEventAvro event) {
         String hubId = String.valueOf(event.getHubId());
         String sensorId = String.valueOf(event.getId());
@@ -63,9 +86,11 @@ public class SnapshotService {
             return Optional.empty();
         }
 
+        // событие может быть переиспользовано при чтении следующей записи, поэтому показания копируются
+        SpecificRecord payload = (SpecificRecord) event.getPayload();
         SensorStateAvro newState = new SensorStateAvro();
         newState.setTimestamp(event.getTimestamp());
-        newState.setData(event.getPayload());
+        newState.setData(SpecificData.get().deepCopy(payload.getSchema(), payload));
 
         sensorsState.put(sensorId, newState);
         snapshot.setTimestamp(event.getTimestamp());
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.telemetry.aggregator.service.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import ru.yandex.practicum.kafka.deserializer.SensorStateDeserializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Журнал изменений состояния датчиков в сжимаемом (compact) топике. Запись с ключом {@code hubId:sensorId}
+ * содержит последнее принятое SensorStateAvro датчика, поэтому после сжатия в топике остаётся
+ * по одной записи на датчик.
+ * <p>
+ * Изменения пишутся в партицию с тем же номером, что и партиция событий, из которой они получены,
+ * поэтому число партиций журнала должно совпадать с числом партиций топика событий датчиков.
+ */
+@Slf4j
+public class SnapshotChangelog {
+    public static final char KEY_SEPARATOR = ':';
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final String topic;
+    private final Properties consumerProperties;
+    private final KafkaProducer<String, Object> producer;
+
+    /**
+     * @param consumerProperties настройки консьюмера для чтения журнала, без group.id
+     */
+    public SnapshotChangelog(String topic, Properties consumerProperties, KafkaProducer<String, Object> producer) {
+        this.topic = topic;
+        this.consumerProperties = consumerProperties;
+        this.producer = producer;
+    }
+
+    public void append(TopicPartition source, String hubId, String sensorId, SensorStateAvro state) {
+        producer.send(new ProducerRecord<>(topic, source.partition(), hubId + KEY_SEPARATOR + sensorId, state));
+    }
+
+    /**
+     * Читает партицию журнала, соответствующую партиции событий, до текущего конца
+     * и собирает из неё снимки хабов.
+     */
+    public List<SensorsSnapshotAvro> restore(TopicPartition source) {
+        TopicPartition partition = new TopicPartition(topic, source.partition());
+        List<TopicPartition> partitions = List.of(partition);
+        SensorStateDeserializer deserializer = new SensorStateDeserializer();
+        Map<String, SensorsSnapshotAvro> snapshots = new HashMap<>();
+        long records = 0;
+
+        try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(consumerProperties)) {
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            long end = consumer.endOffsets(partitions).get(partition);
+            while (consumer.position(partition) < end) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    // идентификаторы хабов не содержат разделителя, идентификатор датчика - всё после него
+                    int separator = record.key().indexOf(KEY_SEPARATOR);
+                    String hubId = record.key().substring(0, separator);
+                    String sensorId = record.key().substring(separator + 1);
+                    SensorStateAvro state = deserializer.deserialize(topic, record.value());
+
+                    SensorsSnapshotAvro snapshot = snapshots.computeIfAbsent(hubId, key -> {
+                        SensorsSnapshotAvro newSnapshot = new SensorsSnapshotAvro();
+                        newSnapshot.setHubId(key);
+                        newSnapshot.setTimestamp(Instant.EPOCH);
+                        newSnapshot.setSensorsState(new HashMap<>());
+                        return newSnapshot;
+                    });
+                    snapshot.getSensorsState().put(sensorId, state);
+                    if (state.getTimestamp().isAfter(snapshot.getTimestamp())) {
+                        snapshot.setTimestamp(state.getTimestamp());
+                    }
+                    records++;
+                }
+            }
+        }
+        log.info("Состояние партиции {} восстановлено из журнала {}: {} записей, {} хабов",
+                source, partition, records, snapshots.size());
+        return new ArrayList<>(snapshots.values());
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.telemetry.aggregator.service.store;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.kafka.common.TopicPartition;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Локальное хранилище снимков состояния хабов одной партиции вместе с оффсетом, до которого они собраны.
+ * Каждая партиция хранится в отдельном файле, отображённом в память; снимок пишется во временный файл
+ * и заменяет предыдущий атомарным переименованием, поэтому после сбоя остаётся последний целый снимок.
+ * <p>
+ * Формат файла: признак формата (int), оффсет (long), число хабов (int), CRC32 данных (long),
+ * затем для каждого хаба длина (int) и SensorsSnapshotAvro в бинарном Avro.
+ */
+@Slf4j
+public class SnapshotStore {
+    private static final int MAGIC = 0x53534e31;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String SUFFIX = ".state";
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть хранилище состояния " + directory, e);
+        }
+    }
+
+    /**
+     * Загружает последний сохранённый снимок партиции.
+     *
+     * @return null, если снимка нет или он повреждён
+     */
+    public Checkpoint load(TopicPartition partition) {
+        Path file = file(partition);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                log.warn("Снимок состояния {} повреждён, пропускаем", file);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long offset = buffer.getLong(Integer.BYTES);
+            int count = buffer.getInt(Integer.BYTES + Long.BYTES);
+            long crc = buffer.getLong(Integer.BYTES + Long.BYTES + Integer.BYTES);
+            CRC32 actual = new CRC32();
+            actual.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+            if (buffer.getInt(0) != MAGIC || actual.getValue() != crc) {
+                log.warn("Снимок состояния {} повреждён, пропускаем", file);
+                return null;
+            }
+
+            SpecificDatumReader<SensorsSnapshotAvro> reader = new SpecificDatumReader<>(SensorsSnapshotAvro.class);
+            List<SensorsSnapshotAvro> snapshots = new ArrayList<>(count);
+            BinaryDecoder decoder = null;
+            byte[] bytes = new byte[0];
+            int position = HEADER_SIZE;
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt(position);
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                buffer.get(position + Integer.BYTES, bytes, 0, length);
+                decoder = DecoderFactory.get().binaryDecoder(bytes, 0, length, decoder);
+                snapshots.add(reader.read(null, decoder));
+                position += Integer.BYTES + length;
+            }
+            log.info("Загружен снимок состояния партиции {}: {} хабов, оффсет {}", partition, count, offset);
+            return new Checkpoint(offset, snapshots);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось прочитать снимок состояния {}, пропускаем", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет состояние хабов партиции, собранное из записей до оффсета {@code offset}.
+     */
+    public void save(TopicPartition partition, long offset, Collection<SensorsSnapshotAvro> snapshots) {
+        SpecificDatumWriter<SensorsSnapshotAvro> writer = new SpecificDatumWriter<>(SensorsSnapshotAvro.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        List<byte[]> values = new ArrayList<>(snapshots.size());
+        long size = HEADER_SIZE;
+        try {
+            for (SensorsSnapshotAvro snapshot : snapshots) {
+                out.reset();
+                writer.write(snapshot, encoder);
+                encoder.flush();
+                byte[] value = out.toByteArray();
+                values.add(value);
+                size += Integer.BYTES + value.length;
+            }
+
+            Path file = file(partition);
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.position(HEADER_SIZE);
+                for (byte[] value : values) {
+                    buffer.putInt(value.length);
+                    buffer.put(value);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(buffer.slice(HEADER_SIZE, (int) size - HEADER_SIZE));
+                buffer.putInt(0, MAGIC);
+                buffer.putLong(Integer.BYTES, offset);
+                buffer.putInt(Integer.BYTES + Long.BYTES, values.size());
+                buffer.putLong(Integer.BYTES + Long.BYTES + Integer.BYTES, crc.getValue());
+                buffer.force();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить состояние партиции " + partition, e);
+        }
+        log.debug("Сохранён снимок состояния партиции {}: {} хабов, оффсет {}", partition, values.size(), offset);
+    }
+
+    private Path file(TopicPartition partition) {
+        return directory.resolve(partition.topic() + "-" + partition.partition() + SUFFIX);
+    }
+
+    public record Checkpoint(long offset, List<SensorsSnapshotAvro> snapshots) {
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.telemetry.aggregator.service.store;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotStoreTest {
+    private static final TopicPartition PARTITION = new TopicPartition("telemetry.sensors.v1", 3);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsSavedSnapshotsWithOffset() {
+        SnapshotStore store = new SnapshotStore(directory);
+        List<SensorsSnapshotAvro> snapshots = List.of(snapshot("hub-1", true), snapshot("hub-2", false));
+
+        store.save(PARTITION, 42, snapshots);
+        SnapshotStore.Checkpoint checkpoint = new SnapshotStore(directory).load(PARTITION);
+
+        assertThat(checkpoint).isNotNull();
+        assertThat(checkpoint.offset()).isEqualTo(42);
+        assertThat(checkpoint.snapshots()).isEqualTo(snapshots);
+    }
+
+    @Test
+    void newerSaveReplacesPrevious() {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.save(PARTITION, 1, List.of(snapshot("hub-1", true)));
+        store.save(PARTITION, 2, List.of(snapshot("hub-1", false), snapshot("hub-2", true)));
+
+        SnapshotStore.Checkpoint checkpoint = store.load(PARTITION);
+
+        assertThat(checkpoint.offset()).isEqualTo(2);
+        assertThat(checkpoint.snapshots()).hasSize(2);
+        assertThat(store.load(new TopicPartition(PARTITION.topic(), 4))).isNull();
+    }
+
+    @Test
+    void rejectsSnapshotWithCorruptedData() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.save(PARTITION, 42, List.of(snapshot("hub-1", true)));
+
+        Path file = stateFile();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThat(store.load(PARTITION)).isNull();
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.save(PARTITION, 42, List.of(snapshot("hub-1", true), snapshot("hub-2", true)));
+
+        Path file = stateFile();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThat(store.load(PARTITION)).isNull();
+
+        // обрезанный до части заголовка файл
+        Files.write(file, Arrays.copyOf(bytes, 6));
+        assertThat(store.load(PARTITION)).isNull();
+    }
+
+    @Test
+    void rejectsFileOfUnknownFormat() throws IOException {
+        SnapshotStore store = new SnapshotStore(directory);
+        store.save(PARTITION, 42, List.of(snapshot("hub-1", true)));
+
+        Path file = stateFile();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[0] ^= 0x01;
+        Files.write(file, bytes);
+
+        assertThat(store.load(PARTITION)).isNull();
+    }
+
+    private Path stateFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".state")).findFirst().orElseThrow();
+        }
+    }
+
+    private static SensorsSnapshotAvro snapshot(String hubId, boolean state) {
+        Instant timestamp = Instant.ofEpochMilli(1_700_000_000_000L);
+        Map<String, SensorStateAvro> sensorsState = new HashMap<>();
+        sensorsState.put("switch-1", new SensorStateAvro(timestamp, new SwitchSensorAvro(state)));
+        return new SensorsSnapshotAvro(hubId, timestamp, sensorsState);
+    }
+}
@@ -3,6 +3,8 @@ package ru.yandex.practicum.telemetry.analyzer.config;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
 
 import java.time.Duration;
 import java.util.List;
@@ -35,11 +37,19 @@ public class KafkaConfig {
         private List<String> topics;
         private Duration pollTimeout;
         private Properties properties;
-
-        public ConsumerConfig(String type, List<String> topics, Duration pollTimeout, Map<String, String> properties) {
+        // схема значений в топиках консьюмера
+        private SchemaVersion schemaVersion;
+        // в топиках дельты снапшотов SensorsSnapshotDeltaAvro вместо полных снапшотов
+        private boolean deltas;
+
+        public ConsumerConfig(String type, List<String> topics, Duration pollTimeout, Map<String, String> properties,
+                              @DefaultValue("v1") SchemaVersion schemaVersion,
+                              @DefaultValue("false") boolean deltas) {
             this.type = type;
             this.topics = topics;
             this.pollTimeout = pollTimeout;
+            this.schemaVersion = schemaVersion;
+            this.deltas = deltas;
 
             this.properties = new Properties(properties.size());
             this.properties.putAll(properties);
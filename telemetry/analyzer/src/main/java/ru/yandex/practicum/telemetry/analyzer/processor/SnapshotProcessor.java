@@ -1,6 +1,7 @@
 package ru.yandex.practicum.telemetry.analyzer.processor;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -8,13 +9,19 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotDeltaDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotView;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotV2Deserializer;
 import ru.yandex.practicum.kafka.telemetry.event.*;
 import ru.yandex.practicum.telemetry.analyzer.config.KafkaConfig;
 import ru.yandex.practicum.telemetry.analyzer.dal.Scenario;
 import ru.yandex.practicum.telemetry.analyzer.service.HubRouterClient;
+import ru.yandex.practicum.telemetry.analyzer.service.SnapshotMirror;
 import ru.yandex.practicum.telemetry.analyzer.service.SnapshotAnalyzer;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,7 +30,16 @@ import java.util.Map;
 @Component
 public class SnapshotProcessor {
     private final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
-    private final KafkaConsumer<String, SensorsSnapshotAvro> consumer;
+    // значения читаются как байты и декодируются в один переиспользуемый экземпляр снапшота
+    private final KafkaConsumer<String, byte[]> consumer;
+    // снапшоты v1 читаются лениво: декодируются только состояния датчиков из условий сценариев
+    private final SensorsSnapshotView snapshotView = new SensorsSnapshotView();
+    private final SensorsSnapshotV2Deserializer deserializerV2 = new SensorsSnapshotV2Deserializer();
+    // в режиме дельт сценарии проверяются по локальной копии снапшотов, собранной из дельт
+    private final SensorsSnapshotDeltaDeserializer deltaDeserializer = new SensorsSnapshotDeltaDeserializer();
+    private final SnapshotMirror mirror = new SnapshotMirror();
+    private final SchemaVersion schemaVersion;
+    private final boolean deltas;
     private final List<String> topics;
     private final Duration pollTimeout;
     private final SnapshotAnalyzer snapshotAnalyzer;
@@ -34,6 +50,8 @@ public class SnapshotProcessor {
         this.consumer = new KafkaConsumer<>(consumerConfig.getProperties());
         this.topics = consumerConfig.getTopics();
         this.pollTimeout = consumerConfig.getPollTimeout();
+        this.schemaVersion = consumerConfig.getSchemaVersion();
+        this.deltas = consumerConfig.isDeltas();
         this.snapshotAnalyzer = snapshotAnalyzer;
         this.hubRouterClient = hubRouterClient;
 
@@ -46,14 +64,34 @@ public class SnapshotProcessor {
     public void start() {
         try {
             log.trace("Подписка на топики {}.", topics);
-            consumer.subscribe(topics);
+            consumer.subscribe(topics, new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    // пока партиция у другого экземпляра, копии её хабов устаревают
+                    mirror.forget(partitions);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                    // копии, оставшиеся от прошлого владения партицией, тоже устарели
+                    mirror.forget(partitions);
+                }
+            });
             while (true) {
-                ConsumerRecords<String, SensorsSnapshotAvro> records = consumer.poll(pollTimeout);
+                ConsumerRecords<String, byte[]> records = consumer.poll(pollTimeout);
                 int count = 0;
-                for (ConsumerRecord<String, SensorsSnapshotAvro> record : records) {
+                for (ConsumerRecord<String, byte[]> record : records) {
                     log.trace("Обработка сообщения от хаба {} partition {} offset {}.",
                             record.key(), record.partition(), record.offset());
-                    handleRecord(record.value());
+                    if (deltas) {
+                        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                        mirror.apply(partition, deltaDeserializer.deserialize(record.topic(), record.value()))
+                                .ifPresent(this::handleRecord);
+                    } else if (schemaVersion == SchemaVersion.V2) {
+                        handleRecord(deserializerV2.deserialize(record.topic(), record.value()));
+                    } else {
+                        handleRecord(snapshotView.wrap(record.topic(), record.value()));
+                    }
                     manageOffsets(record, count, consumer);
                     count++;
                 }
@@ -73,8 +111,8 @@ public class SnapshotProcessor {
         }
     }
 
-    private void manageOffsets(ConsumerRecord<String, SensorsSnapshotAvro> record, int count,
-                               KafkaConsumer<String, SensorsSnapshotAvro> consumer) {
+    private void manageOffsets(ConsumerRecord<String, byte[]> record, int count,
+                               KafkaConsumer<String, byte[]> consumer) {
         offsets.put(
                 new TopicPartition(record.topic(), record.partition()),
                 new OffsetAndMetadata(record.offset() + 1)
@@ -88,6 +126,17 @@ public class SnapshotProcessor {
         }
     }
 
+    private void handleRecord(SensorsSnapshotView snapshot) {
+        try {
+            List<Scenario> scenarios = snapshotAnalyzer.analyze(snapshot.getHubId(), snapshot);
+            for (Scenario scenario : scenarios) {
+                hubRouterClient.handleScenario(scenario);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка обработки события {}.", snapshot, e);
+        }
+    }
+
     private void handleRecord(SensorsSnapshotAvro sensorsSnapshotAvro) {
         try {
             String hubId = sensorsSnapshotAvro.getHubId();
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotView;
 import ru.yandex.practicum.kafka.telemetry.event.*;
 
 import ru.yandex.practicum.telemetry.analyzer.dal.Condition;
@@ -13,6 +14,7 @@ import ru.yandex.practicum.telemetry.analyzer.repository.ScenarioRepository;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -22,11 +24,24 @@ public class SnapshotAnalyzer {
     private final ScenarioRepository scenarioRepository;
 
     public List<Scenario> analyze(String hubId, SensorsSnapshotAvro sensorsSnapshotAvro) {
+        Map<String, SensorStateAvro> sensorsState = sensorsSnapshotAvro.getSensorsState();
+        return analyze(hubId, sensorId -> sensorsState == null ? null : sensorsState.get(sensorId), sensorsSnapshotAvro);
+    }
+
+    /**
+     * Проверяет сценарии хаба по снимку, из которого декодируются только состояния датчиков,
+     * упомянутых в условиях сценариев.
+     */
+    public List<Scenario> analyze(String hubId, SensorsSnapshotView snapshotView) {
+        return analyze(hubId, snapshotView::getSensorState, snapshotView);
+    }
+
+    private List<Scenario> analyze(String hubId, Function<String, SensorStateAvro> sensorStates, Object snapshot) {
         List<Scenario> allScenarios = scenarioRepository.findByHubId(hubId);
         List<Scenario> triggeredScenarios = new ArrayList<>();
 
         for (Scenario scenario : allScenarios) {
-            if (checkScenarioConditions(scenario, sensorsSnapshotAvro)) {
+            if (checkScenarioConditions(scenario, sensorStates, snapshot)) {
                 triggeredScenarios.add(scenario);
                 log.info("Сценарий {} активирован для хаба {}.", scenario.getName(), hubId);
             }
@@ -34,7 +49,8 @@ public class SnapshotAnalyzer {
         return triggeredScenarios;
     }
 
-    private boolean checkScenarioConditions(Scenario scenario, SensorsSnapshotAvro snapshot) {
+    private boolean checkScenarioConditions(Scenario scenario, Function<String, SensorStateAvro> sensorStates,
+                                            Object snapshot) {
         Map<String, Condition> conditions = scenario.getConditions();
         if (conditions.isEmpty()) {
             return true;
@@ -42,15 +58,16 @@ public class SnapshotAnalyzer {
         for (Map.Entry<String, Condition> conditionEntry : conditions.entrySet()) {
             String sensorId = conditionEntry.getKey();
             Condition condition = conditionEntry.getValue();
-            if (!checkCondition(sensorId, condition, snapshot)) {
+            if (!checkCondition(sensorId, condition, sensorStates, snapshot)) {
                 return false;
             }
         }
         return true;
     }
 
-    private boolean checkCondition(String sensorId, Condition condition, SensorsSnapshotAvro snapshot) {
-        SensorStateAvro sensorState = getSensorByIdFromSnapshot(sensorId, snapshot);
+    private boolean checkCondition(String sensorId, Condition condition,
+                                   Function<String, SensorStateAvro> sensorStates, Object snapshot) {
+        SensorStateAvro sensorState = sensorStates.apply(sensorId);
         if (sensorState == null) {
             log.warn("Сенсор {} не найден в снапшоте {}.", sensorId, snapshot);
             return false;
@@ -63,14 +80,6 @@ public class SnapshotAnalyzer {
         return checkConditionValue(sensorValue, condition.getOperation(), condition.getValue());
     }
 
-    private SensorStateAvro getSensorByIdFromSnapshot(String sensorId, SensorsSnapshotAvro snapshot) {
-        Map<String, SensorStateAvro> sensorsState = snapshot.getSensorsState();
-        if (sensorsState == null) {
-            return null;
-        }
-        return sensorsState.get(sensorId);
-    }
-
     private Integer getSensorValue(SensorStateAvro sensorState, ConditionTypeAvro conditionType) {
         Object data = sensorState.getData();
 
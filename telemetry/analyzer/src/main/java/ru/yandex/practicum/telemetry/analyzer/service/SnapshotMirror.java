@@ -0,0 +1,92 @@
+package ru.yandex.practicum.telemetry.analyzer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Локальная копия снапшотов хабов, собираемая из дельт агрегатора. Полный снимок открывает новую серию
+ * и заменяет копию хаба, дельта применяется, только если она из той же серии и её номер следует за последним
+ * применённым. После пропуска или смены серии хаб считается рассинхронизированным до следующего полного
+ * снимка, а его дельты отбрасываются. Копии хабов партиции, которая уходит к другому экземпляру, удаляются:
+ * пока партиция читается в другом месте, копия устаревает.
+ * Не потокобезопасен.
+ */
+@Slf4j
+public class SnapshotMirror {
+    private final Map<String, Mirror> mirrors = new HashMap<>();
+
+    /**
+     * Применяет дельту из партиции {@code partition} к копии хаба.
+     *
+     * @return актуальный снапшот хаба или пустой результат, если копия хаба рассинхронизирована
+     */
+    public Optional<SensorsSnapshotAvro> apply(TopicPartition partition, SensorsSnapshotDeltaAvro delta) {
+        String hubId = delta.getHubId();
+        Mirror mirror = mirrors.get(hubId);
+
+        if (delta.getFull()) {
+            if (mirror == null) {
+                mirror = new Mirror();
+                mirrors.put(hubId, mirror);
+            }
+            // карта состояний полного снимка принадлежит только что декодированной записи и переходит в копию
+            mirror.snapshot = new SensorsSnapshotAvro(hubId, delta.getTimestamp(), delta.getSensorsState());
+            mirror.partition = partition;
+            mirror.epoch = delta.getEpoch();
+            mirror.sequence = delta.getSequence();
+            mirror.synced = true;
+            return Optional.of(mirror.snapshot);
+        }
+
+        if (mirror == null || !mirror.synced) {
+            log.debug("Копия хаба {} не синхронизирована, дельта {} пропущена до полного снимка",
+                    hubId, delta.getSequence());
+            return Optional.empty();
+        }
+        if (delta.getEpoch() != mirror.epoch) {
+            log.warn("Дельта хаба {} из серии {}, копия собрана по серии {}; ждём полный снимок",
+                    hubId, delta.getEpoch(), mirror.epoch);
+            mirror.synced = false;
+            return Optional.empty();
+        }
+        if (delta.getSequence() <= mirror.sequence) {
+            log.debug("Дельта {} хаба {} уже применена", delta.getSequence(), hubId);
+            return Optional.empty();
+        }
+        if (delta.getSequence() != mirror.sequence + 1) {
+            log.warn("Пропущены дельты хаба {}: ожидалась {}, получена {}; ждём полный снимок",
+                    hubId, mirror.sequence + 1, delta.getSequence());
+            mirror.synced = false;
+            return Optional.empty();
+        }
+
+        mirror.snapshot.getSensorsState().putAll(delta.getSensorsState());
+        mirror.snapshot.setTimestamp(delta.getTimestamp());
+        mirror.sequence = delta.getSequence();
+        return Optional.of(mirror.snapshot);
+    }
+
+    /**
+     * Удаляет копии хабов, собранные из указанных партиций.
+     */
+    public void forget(Collection<TopicPartition> partitions) {
+        if (mirrors.values().removeIf(mirror -> partitions.contains(mirror.partition))) {
+            log.debug("Удалены копии хабов партиций {}", partitions);
+        }
+    }
+
+    private static class Mirror {
+        private SensorsSnapshotAvro snapshot;
+        private TopicPartition partition;
+        private long epoch;
+        private long sequence;
+        private boolean synced;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.telemetry.analyzer.service;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotDeltaAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotMirrorTest {
+    private static final String HUB_ID = "hub-1";
+    private static final TopicPartition PARTITION = new TopicPartition("telemetry.snapshots.delta.v1", 0);
+    private static final long EPOCH = 42;
+
+    private final SnapshotMirror mirror = new SnapshotMirror();
+
+    @Test
+    void appliesDeltasOnTopOfFullSnapshot() {
+        mirror.apply(PARTITION, full(EPOCH, Map.of("switch-1", false, "switch-2", false)));
+
+        Optional<SensorsSnapshotAvro> snapshot = mirror.apply(PARTITION, delta(EPOCH, 1, Map.of("switch-1", true)));
+
+        assertThat(snapshot).isPresent();
+        assertThat(state(snapshot.get(), "switch-1")).isTrue();
+        assertThat(state(snapshot.get(), "switch-2")).isFalse();
+    }
+
+    @Test
+    void skipsDeltasAfterGapUntilNextFullSnapshot() {
+        mirror.apply(PARTITION, full(EPOCH, Map.of("switch-1", false)));
+
+        assertThat(mirror.apply(PARTITION, delta(EPOCH, 2, Map.of("switch-1", true)))).isEmpty();
+        // после пропуска даже следующая по номеру дельта не применяется
+        assertThat(mirror.apply(PARTITION, delta(EPOCH, 3, Map.of("switch-1", true)))).isEmpty();
+
+        assertThat(mirror.apply(PARTITION, full(EPOCH + 1, Map.of("switch-1", true)))).isPresent();
+        assertThat(mirror.apply(PARTITION, delta(EPOCH + 1, 1, Map.of("switch-1", false)))).isPresent();
+    }
+
+    @Test
+    void ignoresDuplicateDelta() {
+        mirror.apply(PARTITION, full(EPOCH, Map.of("switch-1", false)));
+        mirror.apply(PARTITION, delta(EPOCH, 1, Map.of("switch-1", true)));
+
+        assertThat(mirror.apply(PARTITION, delta(EPOCH, 1, Map.of("switch-1", false)))).isEmpty();
+
+        Optional<SensorsSnapshotAvro> snapshot = mirror.apply(PARTITION, delta(EPOCH, 2, Map.of("switch-2", true)));
+        assertThat(snapshot).isPresent();
+        assertThat(state(snapshot.get(), "switch-1")).isTrue();
+    }
+
+    @Test
+    void doesNotCompareSequencesOfDifferentEpochs() {
+        mirror.apply(PARTITION, full(EPOCH, Map.of("switch-1", false)));
+
+        // номер подходит, но дельта из другой серии: копия не должна её применять
+        assertThat(mirror.apply(PARTITION, delta(EPOCH + 1, 1, Map.of("switch-1", true)))).isEmpty();
+        assertThat(mirror.apply(PARTITION, delta(EPOCH, 1, Map.of("switch-1", true)))).isEmpty();
+
+        Optional<SensorsSnapshotAvro> snapshot = mirror.apply(PARTITION, full(EPOCH + 1, Map.of("switch-1", true)));
+        assertThat(snapshot).isPresent();
+        assertThat(state(snapshot.get(), "switch-1")).isTrue();
+    }
+
+    @Test
+    void forgetsHubsOfRevokedPartition() {
+        TopicPartition other = new TopicPartition(PARTITION.topic(), 1);
+        mirror.apply(PARTITION, full(EPOCH, Map.of("switch-1", false)));
+        mirror.apply(other, full(EPOCH, "hub-2", Map.of("switch-1", false)));
+
+        mirror.forget(List.of(PARTITION));
+
+        assertThat(mirror.apply(PARTITION, delta(EPOCH, 1, Map.of("switch-1", true)))).isEmpty();
+        assertThat(mirror.apply(other, delta(EPOCH, 1, "hub-2", Map.of("switch-1", true)))).isPresent();
+    }
+
+    private static SensorsSnapshotDeltaAvro full(long epoch, Map<String, Boolean> states) {
+        return full(epoch, HUB_ID, states);
+    }
+
+    private static SensorsSnapshotDeltaAvro full(long epoch, String hubId, Map<String, Boolean> states) {
+        return record(hubId, epoch, 0, true, states);
+    }
+
+    private static SensorsSnapshotDeltaAvro delta(long epoch, long sequence, Map<String, Boolean> states) {
+        return delta(epoch, sequence, HUB_ID, states);
+    }
+
+    private static SensorsSnapshotDeltaAvro delta(long epoch, long sequence, String hubId,
+                                                  Map<String, Boolean> states) {
+        return record(hubId, epoch, sequence, false, states);
+    }
+
+    private static SensorsSnapshotDeltaAvro record(String hubId, long epoch, long sequence, boolean full,
+                                                   Map<String, Boolean> states) {
+        Instant timestamp = Instant.ofEpochMilli(1_700_000_000_000L + sequence);
+        Map<String, SensorStateAvro> sensorsState = new HashMap<>();
+        states.forEach((sensorId, state) ->
+                sensorsState.put(sensorId, new SensorStateAvro(timestamp, new SwitchSensorAvro(state))));
+        return SensorsSnapshotDeltaAvro.newBuilder()
+                .setHubId(hubId)
+                .setTimestamp(timestamp)
+                .setEpoch(epoch)
+                .setSequence(sequence)
+                .setFull(full)
+                .setSensorsState(sensorsState)
+                .build();
+    }
+
+    private static boolean state(SensorsSnapshotAvro snapshot, String sensorId) {
+        return ((SwitchSensorAvro) snapshot.getSensorsState().get(sensorId).getData()).getState();
+    }
+}
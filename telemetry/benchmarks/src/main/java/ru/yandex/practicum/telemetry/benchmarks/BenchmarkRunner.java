@@ -0,0 +1,23 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Запускает JMH с профилировщиком GC, чтобы рядом с пропускной способностью выводился объём выделенной
+ * памяти на операцию (gc.alloc.rate.norm). Аргументы - как у org.openjdk.jmh.Main, например
+ * {@code java -jar benchmarks.jar SensorEventSerde -p sensorType=CLIMATE}; если профилировщик указан
+ * явно через {@code -prof}, GC не добавляется.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("-prof")) {
+            Main.main(args);
+        } else {
+            Main.main(Stream.concat(Stream.of("-prof", "gc"), Arrays.stream(args)).toArray(String[]::new));
+        }
+    }
+}
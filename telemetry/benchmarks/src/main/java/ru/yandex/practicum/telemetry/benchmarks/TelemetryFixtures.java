@@ -0,0 +1,143 @@
+package ru.yandex.practicum.telemetry.benchmarks;
+
+import com.google.protobuf.Timestamp;
+import ru.yandex.practicum.grpc.telemetry.event.ActionTypeProto;
+import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.ConditionOperationProto;
+import ru.yandex.practicum.grpc.telemetry.event.ConditionTypeProto;
+import ru.yandex.practicum.grpc.telemetry.event.DeviceActionProto;
+import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.ScenarioAddedEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.ScenarioConditionProto;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Данные для бенчмарков: события и снимки, похожие на присылаемые хабами. Генерация детерминирована.
+ */
+public final class TelemetryFixtures {
+    public static final String HUB_ID = "hub-3f9c2a7e";
+    public static final Instant TIMESTAMP = Instant.parse("2024-09-01T12:00:00.123Z");
+
+    public enum SensorType {
+        CLIMATE, LIGHT, MOTION, SWITCH, TEMPERATURE;
+
+        public static SensorType of(int index) {
+            return values()[index % values().length];
+        }
+    }
+
+    private TelemetryFixtures() {
+    }
+
+    public static String sensorId(SensorType type, int index) {
+        return "sensor." + type.name().toLowerCase() + "." + index;
+    }
+
+    public static SensorEventProto sensorEventProto(SensorType type, int index, Random random) {
+        SensorEventProto.Builder builder = SensorEventProto.newBuilder()
+                .setId(sensorId(type, index))
+                .setHubId(HUB_ID)
+                .setTimestamp(Timestamp.newBuilder()
+                        .setSeconds(TIMESTAMP.getEpochSecond())
+                        .setNanos(TIMESTAMP.getNano()));
+        switch (type) {
+            case CLIMATE -> builder.setClimateSensorEvent(ClimateSensorProto.newBuilder()
+                    .setTemperatureC(random.nextInt(-20, 40))
+                    .setHumidity(random.nextInt(100))
+                    .setCo2Level(random.nextInt(400, 2000)));
+            case LIGHT -> builder.setLightSensorEvent(LightSensorProto.newBuilder()
+                    .setLinkQuality(random.nextInt(100))
+                    .setLuminosity(random.nextInt(1000)));
+            case MOTION -> builder.setMotionSensorEvent(MotionSensorProto.newBuilder()
+                    .setLinkQuality(random.nextInt(100))
+                    .setMotion(random.nextBoolean())
+                    .setVoltage(random.nextInt(220)));
+            case SWITCH -> builder.setSwitchSensorEvent(SwitchSensorProto.newBuilder()
+                    .setState(random.nextBoolean()));
+            case TEMPERATURE -> {
+                int celsius = random.nextInt(-20, 40);
+                builder.setTemperatureSensorEvent(TemperatureSensorProto.newBuilder()
+                        .setTemperatureC(celsius)
+                        .setTemperatureF(celsius * 9 / 5 + 32));
+            }
+        }
+        return builder.build();
+    }
+
+    public static Object payload(SensorType type, String sensorId, Instant timestamp, Random random) {
+        return switch (type) {
+            case CLIMATE -> new ClimateSensorAvro(random.nextInt(-20, 40), random.nextInt(100), random.nextInt(400, 2000));
+            case LIGHT -> new LightSensorAvro(random.nextInt(100), random.nextInt(1000));
+            case MOTION -> new MotionSensorAvro(random.nextInt(100), random.nextBoolean(), random.nextInt(220));
+            case SWITCH -> new SwitchSensorAvro(random.nextBoolean());
+            case TEMPERATURE -> {
+                int celsius = random.nextInt(-20, 40);
+                yield new TemperatureSensorAvro(sensorId, HUB_ID, timestamp, celsius, celsius * 9 / 5 + 32);
+            }
+        };
+    }
+
+    public static SensorEventAvro sensorEventAvro(SensorType type, int index, Random random) {
+        String sensorId = sensorId(type, index);
+        return new SensorEventAvro(sensorId, HUB_ID, TIMESTAMP, payload(type, sensorId, TIMESTAMP, random));
+    }
+
+    /**
+     * Снимок хаба с датчиками всех типов поровну.
+     */
+    public static SensorsSnapshotAvro snapshot(int sensors, Random random) {
+        Map<String, SensorStateAvro> states = HashMap.newHashMap(sensors);
+        for (int i = 0; i < sensors; i++) {
+            SensorType type = SensorType.of(i);
+            String sensorId = sensorId(type, i);
+            Instant timestamp = TIMESTAMP.minusMillis(random.nextInt(60_000));
+            states.put(sensorId, new SensorStateAvro(timestamp, payload(type, sensorId, timestamp, random)));
+        }
+        return new SensorsSnapshotAvro(HUB_ID, TIMESTAMP, states);
+    }
+
+    public static HubEventProto scenarioAdded(int conditions, Random random) {
+        ScenarioAddedEventProto.Builder scenario = ScenarioAddedEventProto.newBuilder()
+                .setName("Сценарий " + conditions);
+        ConditionTypeProto[] types = {ConditionTypeProto.TEMPERATURE, ConditionTypeProto.HUMIDITY,
+                ConditionTypeProto.MOTION, ConditionTypeProto.SWITCH, ConditionTypeProto.LUMINOSITY};
+        for (int i = 0; i < conditions; i++) {
+            ScenarioConditionProto.Builder condition = ScenarioConditionProto.newBuilder()
+                    .setSensorId("sensor." + i)
+                    .setType(types[i % types.length])
+                    .setOperation(ConditionOperationProto.forNumber(i % 3));
+            if (i % 2 == 0) {
+                condition.setIntValue(random.nextInt(100));
+            } else {
+                condition.setBoolValue(random.nextBoolean());
+            }
+            scenario.addCondition(condition);
+            scenario.addAction(DeviceActionProto.newBuilder()
+                    .setSensorId("device." + i)
+                    .setType(ActionTypeProto.forNumber(i % 4))
+                    .setValue(random.nextInt(100)));
+        }
+        return HubEventProto.newBuilder()
+                .setHubId(HUB_ID)
+                .setTimestamp(Timestamp.newBuilder().setSeconds(TIMESTAMP.getEpochSecond()))
+                .setScenarioAdded(scenario)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+package ru.yandex.practicum.telemetry.benchmarks.aggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventProtoDeserializer;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.aggregator.mapper.SensorEventProtoMapper;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Получение SensorEventAvro агрегатором из записи Kafka: разбор Avro в режимах RECORD и DIRECT коллектора
+ * против разбора protobuf и преобразования SensorEventProtoMapper в режиме PROTOBUF.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorEventDecodingBenchmark {
+    private static final String TOPIC = "telemetry.sensors.v1";
+    private static final int EVENTS = 64;
+
+    @Param({"CLIMATE", "LIGHT", "MOTION", "SWITCH", "TEMPERATURE"})
+    private SensorType sensorType;
+
+    private final SensorEventDeserializer deserializer = new SensorEventDeserializer();
+    private final SensorEventProtoDeserializer protoDeserializer = new SensorEventProtoDeserializer();
+    private byte[][] avro;
+    private byte[][] protobuf;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GeneralAvroSerializer serializer = new GeneralAvroSerializer();
+        Random random = new Random(42);
+        avro = new byte[EVENTS][];
+        protobuf = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            protobuf[i] = TelemetryFixtures.sensorEventProto(sensorType, i, random).toByteArray();
+            avro[i] = serializer.serialize(TOPIC, SensorEventProtoMapper.toAvro(
+                    protoDeserializer.deserialize(TOPIC, protobuf[i])));
+        }
+    }
+
+    @Benchmark
+    public SensorEventAvro avro() {
+        return deserializer.deserialize(TOPIC, avro[index++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public SensorEventAvro protobuf() {
+        return SensorEventProtoMapper.toAvro(protoDeserializer.deserialize(TOPIC, protobuf[index++ & (EVENTS - 1)]));
+    }
+}
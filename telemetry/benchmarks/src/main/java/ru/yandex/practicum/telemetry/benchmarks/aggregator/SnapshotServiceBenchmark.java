@@ -0,0 +1,120 @@
+package ru.yandex.practicum.telemetry.benchmarks.aggregator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.telemetry.aggregator.service.SnapshotService;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обновление снимков агрегатором на потоке событий от нескольких хабов. {@code changeRatio} - доля событий,
+ * показания в которых отличаются от сохранённых; остальные повторяют текущее состояние датчика и
+ * снимок не меняют. Поток проигрывается по кругу, поэтому каждый изменённый датчик меняется за проход чётное
+ * число раз, переключаясь между двумя показаниями: к концу прохода состояние возвращается к исходному, и доля
+ * изменений на следующих проходах остаётся той же. Все события имеют одну метку времени, поэтому повторный проход
+ * не отбрасывается как устаревший.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotServiceBenchmark {
+    private static final int HUBS = 16;
+    private static final int EVENTS = 4096;
+
+    @Param({"10", "100", "1000"})
+    private int sensors;
+
+    @Param({"0.0", "0.1", "1.0"})
+    private double changeRatio;
+
+    private SnapshotService service;
+    private SensorEventAvro[] events;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        service = new SnapshotService();
+
+        // исходные и альтернативные показания каждого датчика; событие без изменений повторяет текущие
+        Object[][] initial = new Object[HUBS][sensors];
+        Object[][] alternate = new Object[HUBS][sensors];
+        for (int hub = 0; hub < HUBS; hub++) {
+            for (int sensor = 0; sensor < sensors; sensor++) {
+                initial[hub][sensor] = nextPayload(sensor, random);
+                do {
+                    alternate[hub][sensor] = nextPayload(sensor, random);
+                } while (alternate[hub][sensor].equals(initial[hub][sensor]));
+                service.updateState(event(hub, sensor, initial[hub][sensor]));
+            }
+        }
+
+        // изменения идут парами: оба события пары меняют один датчик, туда и обратно
+        int changes = (int) Math.round(changeRatio * EVENTS) & ~1;
+        List<Integer> positions = new ArrayList<>(EVENTS);
+        for (int i = 0; i < EVENTS; i++) {
+            positions.add(i);
+        }
+        Collections.shuffle(positions, random);
+        int[] changed = new int[EVENTS];
+        Arrays.fill(changed, -1);
+        for (int pair = 0; pair < changes; pair += 2) {
+            int key = random.nextInt(HUBS * sensors);
+            changed[positions.get(pair)] = key;
+            changed[positions.get(pair + 1)] = key;
+        }
+
+        boolean[][] switched = new boolean[HUBS][sensors];
+        events = new SensorEventAvro[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int key = changed[i] >= 0 ? changed[i] : random.nextInt(HUBS * sensors);
+            int hub = key / sensors;
+            int sensor = key % sensors;
+            if (changed[i] >= 0) {
+                switched[hub][sensor] = !switched[hub][sensor];
+            }
+            Object payload = switched[hub][sensor] ? alternate[hub][sensor] : initial[hub][sensor];
+            events[i] = event(hub, sensor, payload);
+        }
+    }
+
+    private static Object nextPayload(int sensor, Random random) {
+        SensorType type = SensorType.of(sensor);
+        return TelemetryFixtures.payload(type, TelemetryFixtures.sensorId(type, sensor), TelemetryFixtures.TIMESTAMP,
+                random);
+    }
+
+    private static SensorEventAvro event(int hub, int sensor, Object payload) {
+        SensorType type = SensorType.of(sensor);
+        return new SensorEventAvro(TelemetryFixtures.sensorId(type, sensor), "hub-" + hub,
+                TelemetryFixtures.TIMESTAMP, payload);
+    }
+
+    @Benchmark
+    public Optional<SensorsSnapshotAvro> updateState() {
+        return service.updateState(events[index++ & (EVENTS - 1)]);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.telemetry.benchmarks.analyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotView;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ConditionOperationAvro;
+import ru.yandex.practicum.kafka.telemetry.event.ConditionTypeAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+import ru.yandex.practicum.telemetry.analyzer.dal.Condition;
+import ru.yandex.practicum.telemetry.analyzer.dal.Scenario;
+import ru.yandex.practicum.telemetry.analyzer.repository.ScenarioRepository;
+import ru.yandex.practicum.telemetry.analyzer.service.SnapshotAnalyzer;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка сценариев хаба анализатором по снимку из 100 датчиков. Репозиторий сценариев заменён заглушкой,
+ * поэтому замеряется только проверка условий: по декодированному снимку ({@code analyzeRecord}) и по
+ * снимку v1, из которого декодируются только нужные датчики ({@code analyzeView}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotAnalyzerBenchmark {
+    private static final String TOPIC = "telemetry.snapshots.v1";
+    private static final int SENSORS = 100;
+
+    /**
+     * Какие условия сценария выполняются: от этого зависит, сколько условий проверяется до первого невыполненного.
+     */
+    public enum ConditionMix {
+        // все условия выполняются, проверяются все
+        ALL_MATCH,
+        // первое условие не выполняется, остальные не проверяются
+        FIRST_FAILS,
+        // не выполняется только последнее условие
+        LAST_FAILS
+    }
+
+    @Param({"1", "10", "50"})
+    private int scenarios;
+
+    @Param({"1", "5"})
+    private int conditions;
+
+    @Param({"ALL_MATCH", "FIRST_FAILS", "LAST_FAILS"})
+    private ConditionMix conditionMix;
+
+    private SnapshotAnalyzer analyzer;
+    private SensorsSnapshotAvro snapshot;
+    private byte[] data;
+    private final SensorsSnapshotView view = new SensorsSnapshotView();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        snapshot = TelemetryFixtures.snapshot(SENSORS, random);
+        data = new GeneralAvroSerializer().serialize(TOPIC, snapshot);
+
+        ConditionTypeAvro[] types = ConditionTypeAvro.values();
+        List<Scenario> hubScenarios = new ArrayList<>(scenarios);
+        for (int s = 0; s < scenarios; s++) {
+            Scenario scenario = new Scenario();
+            scenario.setHubId(TelemetryFixtures.HUB_ID);
+            scenario.setName("Сценарий " + s);
+            Map<String, Condition> scenarioConditions = new LinkedHashMap<>();
+            for (int c = 0; c < conditions; c++) {
+                boolean fails = conditionMix == ConditionMix.FIRST_FAILS && c == 0
+                        || conditionMix == ConditionMix.LAST_FAILS && c == conditions - 1;
+                ConditionTypeAvro type = types[(s + c) % types.length];
+                String sensorId = findSensor(type, scenarioConditions, random);
+                int value = sensorValue(snapshot.getSensorsState().get(sensorId), type);
+
+                Condition condition = new Condition();
+                condition.setType(type);
+                condition.setOperation(ConditionOperationAvro.EQUALS);
+                condition.setValue(fails ? value + 1 : value);
+                scenarioConditions.put(sensorId, condition);
+            }
+            scenario.setConditions(scenarioConditions);
+            hubScenarios.add(scenario);
+        }
+        analyzer = new SnapshotAnalyzer(stubRepository(hubScenarios));
+    }
+
+    private String findSensor(ConditionTypeAvro type, Map<String, Condition> used, Random random) {
+        List<String> candidates = new ArrayList<>();
+        for (Map.Entry<String, SensorStateAvro> entry : snapshot.getSensorsState().entrySet()) {
+            if (!used.containsKey(entry.getKey()) && sensorValue(entry.getValue(), type) != null) {
+                candidates.add(entry.getKey());
+            }
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    private static Integer sensorValue(SensorStateAvro state, ConditionTypeAvro type) {
+        Object data = state.getData();
+        return switch (type) {
+            case TEMPERATURE -> data instanceof ClimateSensorAvro climate ? Integer.valueOf(climate.getTemperatureC())
+                    : data instanceof TemperatureSensorAvro temperature ? temperature.getTemperatureC() : null;
+            case HUMIDITY -> data instanceof ClimateSensorAvro climate ? climate.getHumidity() : null;
+            case CO2LEVEL -> data instanceof ClimateSensorAvro climate ? climate.getCo2Level() : null;
+            case LUMINOSITY -> data instanceof LightSensorAvro light ? light.getLuminosity() : null;
+            case MOTION -> data instanceof MotionSensorAvro motion ? (motion.getMotion() ? 1 : 0) : null;
+            case SWITCH -> data instanceof SwitchSensorAvro sensorSwitch ? (sensorSwitch.getState() ? 1 : 0) : null;
+        };
+    }
+
+    private static ScenarioRepository stubRepository(List<Scenario> hubScenarios) {
+        return (ScenarioRepository) Proxy.newProxyInstance(ScenarioRepository.class.getClassLoader(),
+                new Class<?>[]{ScenarioRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByHubId")) {
+                        return hubScenarios;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public List<Scenario> analyzeRecord() {
+        return analyzer.analyze(TelemetryFixtures.HUB_ID, snapshot);
+    }
+
+    @Benchmark
+    public List<Scenario> analyzeView() {
+        return analyzer.analyze(TelemetryFixtures.HUB_ID, view.wrap(TOPIC, data));
+    }
+}
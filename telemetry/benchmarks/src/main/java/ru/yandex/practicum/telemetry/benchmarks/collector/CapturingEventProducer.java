@@ -0,0 +1,70 @@
+package ru.yandex.practicum.telemetry.benchmarks.collector;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.avro.specific.SpecificRecordBase;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.telemetry.collector.configuration.AdaptiveBatchingConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.BatchingConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.PartitioningConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.SpillJournalConfig;
+import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Продюсер, который запоминает последнее переданное ему значение вместо отправки в Kafka.
+ * Клиент Kafka создаётся родительским конструктором, но к брокеру не обращается.
+ */
+public class CapturingEventProducer extends KafkaEventProducer {
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    // false - записи Avro не сериализуются, замеряется только сборка записи обработчиком
+    private final boolean serializeRecords;
+    private Object lastValue;
+
+    public CapturingEventProducer(KafkaConfig.ValueEncoding valueEncoding, boolean serializeRecords) {
+        super(kafkaConfig(valueEncoding), new SpillJournalConfig(), new BatchingConfig(), new PartitioningConfig(),
+                new AdaptiveBatchingConfig(), new SimpleMeterRegistry());
+        this.serializeRecords = serializeRecords;
+    }
+
+    private static KafkaConfig kafkaConfig(KafkaConfig.ValueEncoding valueEncoding) {
+        Properties properties = new Properties();
+        properties.put("bootstrap.servers", "localhost:9092");
+        KafkaConfig config = new KafkaConfig();
+        config.setProducer(new KafkaConfig.ProducerConfig(properties,
+                Map.of("sensors-events", "telemetry.sensors.v1", "hubs-events", "telemetry.hubs.v1"),
+                KafkaConfig.AckMode.IMMEDIATE, 10_000, valueEncoding, 1, SchemaVersion.V1));
+        return config;
+    }
+
+    public Object getLastValue() {
+        return lastValue;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(SpecificRecordBase event, String hubId, Instant timestamp,
+                                        KafkaConfig.TopicType topicType) {
+        if (serializeRecords) {
+            return super.send(event, hubId, timestamp, topicType);
+        }
+        lastValue = event;
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(byte[] value, String hubId, long timestamp, KafkaConfig.TopicType topicType) {
+        lastValue = value;
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> sendProtobuf(byte[] value, String hubId, long timestamp) {
+        lastValue = value;
+        return DONE;
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.telemetry.benchmarks.collector;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+import ru.yandex.practicum.telemetry.collector.configuration.GrpcServerConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.GrpcServerTuner;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.RateLimitConfig;
+import ru.yandex.practicum.telemetry.collector.controller.EventController;
+import ru.yandex.practicum.telemetry.collector.service.filter.SensorEventFilter;
+import ru.yandex.practicum.telemetry.collector.service.handler.SensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.ratelimit.HubRateLimiter;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * gRPC-сервер коллектора на loopback-соединениях под постоянной нагрузкой из {@code streams} одновременных
+ * вызовов collectSensorEvent в каждом сочетании настроек {@link GrpcServerConfig}. Фоновые вызовы
+ * перезапускаются по завершении, поэтому число вызовов в работе не меняется. Kafka заменена
+ * {@link CapturingEventProducer}, замеряется только сервер и обработчики событий.
+ * <p>
+ * throughput - вызовы сервера в миллисекунду (счётчик calls), latency - распределение времени
+ * отдельного вызова под той же нагрузкой, включая p0.99.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GrpcServerBenchmark {
+    private static final int CHANNELS = 8;
+    private static final int EVENTS = 64;
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder FAILED = new LongAdder();
+
+    @Param({"DEFAULT", "VIRTUAL_THREADS"})
+    private GrpcServerConfig.ExecutorType executor;
+
+    @Param({"false", "true"})
+    private boolean epoll;
+
+    @Param({"false", "true"})
+    private boolean pooledDirectBuffers;
+
+    @Param({"10000"})
+    private int streams;
+
+    private CapturingEventProducer producer;
+    private GrpcServerTuner tuner;
+    private Server server;
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private CollectorControllerGrpc.CollectorControllerStub[] stubs;
+    private CollectorControllerGrpc.CollectorControllerBlockingStub blockingStub;
+    private SensorEventProto[] events;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        producer = new CapturingEventProducer(KafkaConfig.ValueEncoding.PROTOBUF, false);
+        Set<SensorEventHandler> handlers = new HashSet<>();
+        for (SensorType type : SensorType.values()) {
+            handlers.add(SensorEventHandlers.create(type, producer));
+        }
+        EventController controller = new EventController(handlers, Set.of(),
+                new DefaultListableBeanFactory().getBeanProvider(SensorEventFilter.class),
+                new HubRateLimiter(new RateLimitConfig(), new SimpleMeterRegistry()));
+
+        GrpcServerConfig config = new GrpcServerConfig();
+        config.setExecutor(executor);
+        config.setEpoll(epoll);
+        config.setPooledDirectBuffers(pooledDirectBuffers);
+        tuner = new GrpcServerTuner(config);
+        NettyServerBuilder serverBuilder = NettyServerBuilder.forAddress(new InetSocketAddress("localhost", 0))
+                .addService(controller);
+        tuner.accept(serverBuilder);
+        server = serverBuilder.build().start();
+
+        stubs = new CollectorControllerGrpc.CollectorControllerStub[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++) {
+            // ответы разбираются в потоке event loop клиента, чтобы клиент не конкурировал с сервером за пул
+            ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                    .usePlaintext()
+                    .directExecutor()
+                    .build();
+            channels.add(channel);
+            stubs[i] = CollectorControllerGrpc.newStub(channel);
+        }
+        blockingStub = CollectorControllerGrpc.newBlockingStub(channels.get(0));
+
+        Random random = new Random(42);
+        events = new SensorEventProto[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = TelemetryFixtures.sensorEventProto(SensorType.of(i), i, random);
+        }
+
+        COMPLETED.reset();
+        FAILED.reset();
+        running = true;
+        for (int stream = 0; stream < streams; stream++) {
+            call(stream);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        for (ManagedChannel channel : channels) {
+            channel.shutdownNow();
+        }
+        server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        tuner.destroy();
+        producer.close();
+        if (FAILED.sum() > 0) {
+            System.out.println("Завершились ошибкой вызовов: " + FAILED.sum());
+        }
+    }
+
+    private void call(int stream) {
+        if (!running) {
+            return;
+        }
+        stubs[stream % CHANNELS].collectSensorEvent(events[stream & (EVENTS - 1)], new StreamObserver<>() {
+            @Override
+            public void onNext(Empty value) {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (running) {
+                    FAILED.increment();
+                    call(stream);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                COMPLETED.increment();
+                call(stream);
+            }
+        });
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void throughput(Calls calls) throws InterruptedException {
+        // нагрузку создают фоновые вызовы; поток JMH только ждёт конца итерации
+        Thread.sleep(1);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Empty latency() {
+        return blockingStub.collectSensorEvent(events[0]);
+    }
+
+    /**
+     * Число вызовов сервера, завершённых за итерацию; JMH приводит его к вызовам в единицу времени.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Calls {
+        private long start;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            start = COMPLETED.sum();
+        }
+
+        public long calls() {
+            return COMPLETED.sum() - start;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.telemetry.benchmarks.collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.service.handler.hub.ScenarioAddedEventHandler;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработка события добавления сценария с разным числом условий и действий:
+ * {@code mapping} - сборка HubEventAvro, {@code record} и {@code direct} - с сериализацией значения.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScenarioAddedHandlerBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int conditions;
+
+    private CapturingEventProducer mappingProducer;
+    private CapturingEventProducer recordProducer;
+    private CapturingEventProducer directProducer;
+    private ScenarioAddedEventHandler mappingHandler;
+    private ScenarioAddedEventHandler recordHandler;
+    private ScenarioAddedEventHandler directHandler;
+    private HubEventProto event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mappingProducer = new CapturingEventProducer(KafkaConfig.ValueEncoding.RECORD, false);
+        recordProducer = new CapturingEventProducer(KafkaConfig.ValueEncoding.RECORD, true);
+        directProducer = new CapturingEventProducer(KafkaConfig.ValueEncoding.DIRECT, true);
+        mappingHandler = new ScenarioAddedEventHandler(mappingProducer);
+        recordHandler = new ScenarioAddedEventHandler(recordProducer);
+        directHandler = new ScenarioAddedEventHandler(directProducer);
+        event = TelemetryFixtures.scenarioAdded(conditions, new Random(42));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mappingProducer.close();
+        recordProducer.close();
+        directProducer.close();
+    }
+
+    @Benchmark
+    public Object mapping() {
+        mappingHandler.handle(event);
+        return mappingProducer.getLastValue();
+    }
+
+    @Benchmark
+    public Object record() {
+        recordHandler.handle(event);
+        return recordProducer.getLastValue();
+    }
+
+    @Benchmark
+    public Object direct() {
+        directHandler.handle(event);
+        return directProducer.getLastValue();
+    }
+}
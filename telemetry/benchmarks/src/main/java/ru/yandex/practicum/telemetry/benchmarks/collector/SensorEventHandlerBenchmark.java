@@ -0,0 +1,71 @@
+package ru.yandex.practicum.telemetry.benchmarks.collector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.service.handler.SensorEventHandler;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь события датчика в коллекторе от protobuf-сообщения до значения, передаваемого продюсеру,
+ * в каждом режиме кодирования значения.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorEventHandlerBenchmark {
+    private static final int EVENTS = 64;
+
+    @Param({"CLIMATE", "LIGHT", "MOTION", "SWITCH", "TEMPERATURE"})
+    private SensorType sensorType;
+
+    @Param({"RECORD", "DIRECT", "PROTOBUF"})
+    private KafkaConfig.ValueEncoding valueEncoding;
+
+    private CapturingEventProducer producer;
+    private SensorEventHandler handler;
+    private SensorEventProto[] events;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        producer = new CapturingEventProducer(valueEncoding, true);
+        handler = SensorEventHandlers.create(sensorType, producer);
+
+        Random random = new Random(42);
+        events = new SensorEventProto[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = TelemetryFixtures.sensorEventProto(sensorType, i, random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producer.close();
+    }
+
+    @Benchmark
+    public Object handle() {
+        handler.handle(events[index++ & (EVENTS - 1)]);
+        return producer.getLastValue();
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.telemetry.benchmarks.collector;
+
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
+import ru.yandex.practicum.telemetry.collector.service.handler.SensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.handler.sensor.ClimateSensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.handler.sensor.LightSensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.handler.sensor.MotionSensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.handler.sensor.SwitchSensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.handler.sensor.TemperatureSensorEventHandler;
+
+final class SensorEventHandlers {
+
+    private SensorEventHandlers() {
+    }
+
+    static SensorEventHandler create(SensorType type, KafkaEventProducer producer) {
+        return switch (type) {
+            case CLIMATE -> new ClimateSensorEventHandler(producer);
+            case LIGHT -> new LightSensorEventHandler(producer);
+            case MOTION -> new MotionSensorEventHandler(producer);
+            case SWITCH -> new SwitchSensorEventHandler(producer);
+            case TEMPERATURE -> new TemperatureSensorEventHandler(producer);
+        };
+    }
+}
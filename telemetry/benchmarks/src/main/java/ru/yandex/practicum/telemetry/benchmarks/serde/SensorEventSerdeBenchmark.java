@@ -0,0 +1,86 @@
+package ru.yandex.practicum.telemetry.benchmarks.serde;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.kafka.deserializer.SensorEventDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorEventProtoDeserializer;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures.SensorType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и десериализация одиночных событий датчиков. {@code deserializeProtobuf} - разбор того же
+ * события в формате protobuf, как его читает агрегатор в режиме PROTOBUF.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorEventSerdeBenchmark {
+    private static final String TOPIC = "telemetry.sensors.v1";
+    private static final int EVENTS = 64;
+
+    @Param({"CLIMATE", "LIGHT", "MOTION", "SWITCH", "TEMPERATURE"})
+    private SensorType sensorType;
+
+    private final GeneralAvroSerializer serializer = new GeneralAvroSerializer();
+    private final SensorEventDeserializer deserializer = new SensorEventDeserializer();
+    private final SensorEventProtoDeserializer protoDeserializer = new SensorEventProtoDeserializer();
+    private SensorEventAvro[] events;
+    private byte[][] avro;
+    private byte[][] protobuf;
+    private SensorEventAvro reuse;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        events = new SensorEventAvro[EVENTS];
+        avro = new byte[EVENTS][];
+        protobuf = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = TelemetryFixtures.sensorEventAvro(sensorType, i, random);
+            avro[i] = serializer.serialize(TOPIC, events[i]);
+            SensorEventProto proto = TelemetryFixtures.sensorEventProto(sensorType, i, random);
+            protobuf[i] = proto.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, events[index++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public SensorEventAvro deserialize() {
+        return deserializer.deserialize(TOPIC, avro[index++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public SensorEventAvro deserializeReuse() {
+        reuse = deserializer.deserialize(TOPIC, avro[index++ & (EVENTS - 1)], reuse);
+        return reuse;
+    }
+
+    @Benchmark
+    public SensorEventProto deserializeProtobuf() {
+        return protoDeserializer.deserialize(TOPIC, protobuf[index++ & (EVENTS - 1)]);
+    }
+}
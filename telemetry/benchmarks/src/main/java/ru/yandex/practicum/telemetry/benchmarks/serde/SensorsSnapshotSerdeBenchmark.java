@@ -0,0 +1,77 @@
+package ru.yandex.practicum.telemetry.benchmarks.serde;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotDeserializer;
+import ru.yandex.practicum.kafka.deserializer.SensorsSnapshotView;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.telemetry.benchmarks.TelemetryFixtures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация и десериализация снимков хаба разного размера. {@code viewLookup} - чтение состояния
+ * одного датчика через SensorsSnapshotView, как это делает анализатор для снимков v1.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SensorsSnapshotSerdeBenchmark {
+    private static final String TOPIC = "telemetry.snapshots.v1";
+
+    @Param({"10", "100", "1000"})
+    private int sensors;
+
+    private final GeneralAvroSerializer serializer = new GeneralAvroSerializer();
+    private final SensorsSnapshotDeserializer deserializer = new SensorsSnapshotDeserializer();
+    private final SensorsSnapshotView view = new SensorsSnapshotView();
+    private SensorsSnapshotAvro snapshot;
+    private byte[] data;
+    private String[] sensorIds;
+    private SensorsSnapshotAvro reuse;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        snapshot = TelemetryFixtures.snapshot(sensors, new Random(42));
+        data = serializer.serialize(TOPIC, snapshot);
+        sensorIds = snapshot.getSensorsState().keySet().toArray(String[]::new);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, snapshot);
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro deserialize() {
+        return deserializer.deserialize(TOPIC, data);
+    }
+
+    @Benchmark
+    public SensorsSnapshotAvro deserializeReuse() {
+        reuse = deserializer.deserialize(TOPIC, data, reuse);
+        return reuse;
+    }
+
+    @Benchmark
+    public SensorStateAvro viewLookup() {
+        return view.wrap(TOPIC, data).getSensorState(sensorIds[index++ % sensorIds.length]);
+    }
+}
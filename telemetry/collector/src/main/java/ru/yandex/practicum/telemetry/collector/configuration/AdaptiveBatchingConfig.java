@@ -0,0 +1,27 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.adaptive-batching")
+public class AdaptiveBatchingConfig {
+    private boolean enabled;
+    // целевой 99-й перцентиль времени от передачи события продюсеру до подтверждения брокером
+    private Duration targetP99 = Duration.ofMillis(50);
+    // как часто пересматриваются настройки продюсеров
+    private Duration interval = Duration.ofSeconds(30);
+    // минимальное число подтверждённых событий за интервал, при котором решение принимается
+    private long minSamples = 1000;
+    private Duration minLinger = Duration.ZERO;
+    private Duration maxLinger = Duration.ofMillis(50);
+    private DataSize minBatchSize = DataSize.ofKilobytes(16);
+    private DataSize maxBatchSize = DataSize.ofMegabytes(1);
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.batching")
+public class BatchingConfig {
+    private boolean enabled;
+    // сколько ждать следующих событий хаба, прежде чем отправить накопленную пачку
+    private Duration linger = Duration.ofMillis(5);
+    // пачка отправляется сразу, как только в ней набирается столько событий
+    private int maxEvents = 100;
+}
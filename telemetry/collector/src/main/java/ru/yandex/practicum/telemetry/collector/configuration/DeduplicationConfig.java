@@ -0,0 +1,20 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.dedup")
+public class DeduplicationConfig {
+    private boolean enabled;
+    // максимальное число датчиков, для которых хранятся последние показания
+    private int maxEntries = 100_000;
+    // неизменные показания всё равно отправляются, если с предыдущей отправки прошло столько времени
+    private Duration maxSilence = Duration.ofMinutes(1);
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.duplicates")
+public class DuplicateDetectionConfig {
+    private boolean enabled;
+    // сколько времени после отправки повтор события распознаётся как дубликат
+    private Duration window = Duration.ofMinutes(5);
+    // на сколько интервалов делится окно; устаревший интервал очищается целиком
+    private int buckets = 5;
+    // максимальное число событий в одном интервале, сверх него события не запоминаются
+    private int maxEntriesPerBucket = 200_000;
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.grpc")
+public class GrpcServerConfig {
+    private ExecutorType executor = ExecutorType.DEFAULT;
+    // транспорт epoll вместо NIO; действует только на Linux, где доступна нативная библиотека
+    private boolean epoll;
+    // число потоков event loop для epoll, 0 - по умолчанию Netty
+    private int workerThreads;
+    // пул direct-буферов для входящих соединений
+    private boolean pooledDirectBuffers;
+
+    public enum ExecutorType {
+        // пул платформенных потоков grpc-server-spring-boot-starter
+        DEFAULT,
+        // отдельный виртуальный поток на каждый вызов
+        VIRTUAL_THREADS
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerSocketChannel;
+import lombok.extern.slf4j.Slf4j;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Настраивает исполнитель и транспорт gRPC-сервера коллектора согласно {@link GrpcServerConfig}.
+ */
+@Slf4j
+@Component
+public class GrpcServerTuner implements GrpcServerConfigurer, DisposableBean {
+    private final GrpcServerConfig config;
+    private final List<EventLoopGroup> eventLoopGroups = new ArrayList<>();
+    private ExecutorService executor;
+
+    public GrpcServerTuner(GrpcServerConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void accept(ServerBuilder<?> serverBuilder) {
+        log.info("Настройка gRPC-сервера: {}", config);
+
+        if (config.getExecutor() == GrpcServerConfig.ExecutorType.VIRTUAL_THREADS) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            serverBuilder.executor(executor);
+        }
+
+        if (!(serverBuilder instanceof NettyServerBuilder nettyServerBuilder)) {
+            if (config.isEpoll() || config.isPooledDirectBuffers()) {
+                log.warn("Транспорт {} не поддерживает настройки Netty, они пропущены",
+                        serverBuilder.getClass().getSimpleName());
+            }
+            return;
+        }
+
+        if (config.isEpoll()) {
+            if (Epoll.isAvailable()) {
+                EventLoopGroup boss = new EpollEventLoopGroup(1);
+                EventLoopGroup worker = new EpollEventLoopGroup(config.getWorkerThreads());
+                eventLoopGroups.add(boss);
+                eventLoopGroups.add(worker);
+                nettyServerBuilder.channelType(EpollServerSocketChannel.class)
+                        .bossEventLoopGroup(boss)
+                        .workerEventLoopGroup(worker);
+            } else {
+                log.warn("Транспорт epoll недоступен, используется NIO", Epoll.unavailabilityCause());
+            }
+        }
+
+        if (config.isPooledDirectBuffers()) {
+            nettyServerBuilder.withChildOption(ChannelOption.ALLOCATOR, new PooledByteBufAllocator(true));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // сервер не владеет переданными ему группами и исполнителем, поэтому останавливаем их сами
+        eventLoopGroups.forEach(EventLoopGroup::shutdownGracefully);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
 
 import java.util.EnumMap;
 import java.util.Map;
@@ -20,12 +22,28 @@ public class KafkaConfig {
     public static class ProducerConfig {
         private final Properties properties;
         private final EnumMap<TopicType, String> topics = new EnumMap<>(TopicType.class);
+        private final AckMode ackMode;
+        private final int maxInFlight;
+        private final ValueEncoding valueEncoding;
+        private final int producerCount;
+        private final SchemaVersion schemaVersion;
 
-        public ProducerConfig(Properties properties, Map<String, String> topics) {
+        public ProducerConfig(Properties properties,
+                              Map<String, String> topics,
+                              @DefaultValue("immediate") AckMode ackMode,
+                              @DefaultValue("10000") int maxInFlight,
+                              @DefaultValue("record") ValueEncoding valueEncoding,
+                              @DefaultValue("1") int producerCount,
+                              @DefaultValue("v1") SchemaVersion schemaVersion) {
             this.properties = properties;
             for (Map.Entry<String, String> entry : topics.entrySet()) {
                 this.topics.put(TopicType.from(entry.getKey()), entry.getValue());
             }
+            this.ackMode = ackMode;
+            this.maxInFlight = maxInFlight;
+            this.valueEncoding = valueEncoding;
+            this.producerCount = producerCount;
+            this.schemaVersion = schemaVersion;
         }
     }
 
@@ -41,4 +59,21 @@ public class KafkaConfig {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    public enum AckMode {
+        // ответ клиенту сразу после передачи события продюсеру; с журналом порядок событий хаба не гарантируется:
+        // событие, отклонённое брокером, попадает в журнал позже событий, переданных продюсеру после него
+        IMMEDIATE,
+        // ответ клиенту после подтверждения записи брокером
+        AFTER_KAFKA
+    }
+
+    public enum ValueEncoding {
+        // событие собирается в SpecificRecord и сериализуется GeneralAvroSerializer
+        RECORD,
+        // бинарный Avro пишется напрямую из полей protobuf-сообщения, байты совпадают с RECORD
+        DIRECT,
+        // события датчиков пишутся в исходном формате protobuf, события хабов - как в RECORD
+        PROTOBUF
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.partitioning")
+public class PartitioningConfig {
+    private boolean enabled;
+    // горячие хабы, которым отводятся отдельные партиции; партиция выбирается по порядку в списке,
+    // поэтому новые хабы добавляются в конец, чтобы уже перечисленные не переезжали
+    private List<String> hotHubs = new ArrayList<>();
+    // хаб не из списка, присылающий больше событий датчиков в секунду, отмечается в метрике и журнале; 0 - не следить
+    private double hotThreshold = 500;
+    // окно, за которое измеряется скорость хаба
+    private Duration rateWindow = Duration.ofSeconds(10);
+    // число последних партиций топика, отведённых под события горячих хабов
+    private int hotPartitions = 4;
+    // число точек каждой партиции на кольце согласованного хеширования
+    private int virtualNodes = 64;
+    // максимальное число отслеживаемых хабов; при превышении таблица очищается
+    private int maxHubs = 100_000;
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.rate-limit")
+public class RateLimitConfig {
+    private boolean enabled;
+    // устойчивая скорость приёма событий от одного хаба, событий в секунду
+    private double eventsPerSecond = 1000;
+    // сколько событий хаб может прислать разом сверх устойчивой скорости
+    private int burst = 2000;
+    // максимальное число отслеживаемых хабов; при превышении вытесняются дольше всех неактивные
+    private int maxHubs = 100_000;
+    // сколько хабов с наибольшим числом отклонённых событий показывать в метрике и журнале
+    private int topThrottledHubs = 10;
+    // интервал, за который считаются отклонённые события хабов
+    private Duration reportInterval = Duration.ofSeconds(10);
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.telemetry.collector.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ToString
+@ConfigurationProperties("collector.spill")
+public class SpillJournalConfig {
+    private boolean enabled;
+    // каталог с сегментами журнала
+    private String directory = "spill";
+    // размер одного сегмента; файл сегмента отображается в память целиком
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    // максимальное число сегментов; при заполнении журнала новые события отклоняются
+    private int maxSegments = 16;
+    // сколько событий из журнала отправляется в Kafka за один проход
+    private int drainBatchSize = 500;
+    // пауза перед повторной отправкой из журнала, если Kafka недоступна
+    private Duration retryBackoff = Duration.ofSeconds(1);
+}
@@ -6,14 +6,23 @@ import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.ObjectProvider;
 import ru.yandex.practicum.grpc.telemetry.collector.CollectorControllerGrpc;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.collector.exception.ResourceExhaustedException;
+import ru.yandex.practicum.telemetry.collector.service.filter.SensorEventFilter;
 import ru.yandex.practicum.telemetry.collector.service.handler.HubEventHandler;
 import ru.yandex.practicum.telemetry.collector.service.handler.SensorEventHandler;
+import ru.yandex.practicum.telemetry.collector.service.ratelimit.HubRateLimiter;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -22,43 +31,154 @@ import java.util.stream.Collectors;
 public class EventController extends CollectorControllerGrpc.CollectorControllerImplBase {
     private final Map<SensorEventProto.PayloadCase, SensorEventHandler> sensorEventHandlers;
     private final Map<HubEventProto.PayloadCase, HubEventHandler> hubEventHandlers;
+    private final List<SensorEventFilter> sensorEventFilters;
+    private final HubRateLimiter rateLimiter;
 
-    public EventController(Set<SensorEventHandler> sensorEventHandlers, Set<HubEventHandler> hubEventHandlers) {
+    public EventController(Set<SensorEventHandler> sensorEventHandlers, Set<HubEventHandler> hubEventHandlers,
+                           ObjectProvider<SensorEventFilter> sensorEventFilters, HubRateLimiter rateLimiter) {
         this.sensorEventHandlers = sensorEventHandlers.stream()
                 .collect(Collectors.toMap(SensorEventHandler::getMessageType, Function.identity()));
         this.hubEventHandlers = hubEventHandlers.stream()
                 .collect(Collectors.toMap(HubEventHandler::getMessageType, Function.identity()));
+        this.sensorEventFilters = sensorEventFilters.orderedStream().toList();
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
     public void collectSensorEvent(SensorEventProto request, StreamObserver<Empty> responseObserver) {
-       try {
-           if (sensorEventHandlers.containsKey(request.getPayloadCase())) {
-               sensorEventHandlers.get(request.getPayloadCase()).handle(request);
-           } else {
-               throw new IllegalArgumentException("Не могу найти обработчик для события: " + request.getPayloadCase());
-           }
-
-           responseObserver.onNext(Empty.getDefaultInstance());
-           responseObserver.onCompleted();
-       } catch (Exception e) {
-           responseObserver.onError(new StatusRuntimeException(Status.fromThrowable(e)));
-       }
+        try {
+            handleSensorEvent(request).whenComplete((ignored, e) -> reply(responseObserver, e));
+        } catch (Exception e) {
+            responseObserver.onError(toStatusException(e));
+        }
     }
 
     @Override
     public void collectHubEvent(HubEventProto request, StreamObserver<Empty> responseObserver) {
         try {
-            if (hubEventHandlers.containsKey(request.getPayloadCase())) {
-                hubEventHandlers.get(request.getPayloadCase()).handle(request);
-            } else {
-                throw new IllegalArgumentException("Не могу найти обработчик для события: " + request.getPayloadCase());
+            handleHubEvent(request).whenComplete((ignored, e) -> reply(responseObserver, e));
+        } catch (Exception e) {
+            responseObserver.onError(toStatusException(e));
+        }
+    }
+
+    @Override
+    public StreamObserver<SensorEventProto> collectSensorEvents(StreamObserver<Empty> responseObserver) {
+        return new BatchObserver<>(this::handleSensorEvent, responseObserver);
+    }
+
+    @Override
+    public StreamObserver<HubEventProto> collectHubEvents(StreamObserver<Empty> responseObserver) {
+        return new BatchObserver<>(this::handleHubEvent, responseObserver);
+    }
+
+    private CompletableFuture<Void> handleSensorEvent(SensorEventProto request) {
+        SensorEventHandler handler = sensorEventHandlers.get(request.getPayloadCase());
+        if (handler == null) {
+            throw new IllegalArgumentException("Не могу найти обработчик для события: " + request.getPayloadCase());
+        }
+        for (SensorEventFilter filter : sensorEventFilters) {
+            if (!filter.accept(request)) {
+                return CompletableFuture.completedFuture(null);
             }
+        }
+        // лимит хаба расходуют только события, дошедшие до обработчика, а не отброшенные фильтрами повторы
+        rateLimiter.acquire(request.getHubId());
 
+        CompletableFuture<Void> result = handler.handle(request);
+        if (!sensorEventFilters.isEmpty()) {
+            result.thenRun(() -> sensorEventFilters.forEach(filter -> filter.onSent(request)));
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> handleHubEvent(HubEventProto request) {
+        HubEventHandler handler = hubEventHandlers.get(request.getPayloadCase());
+        if (handler == null) {
+            throw new IllegalArgumentException("Не могу найти обработчик для события: " + request.getPayloadCase());
+        }
+        rateLimiter.acquire(request.getHubId());
+        return handler.handle(request);
+    }
+
+    private static void reply(StreamObserver<Empty> responseObserver, Throwable error) {
+        if (error != null) {
+            responseObserver.onError(toStatusException(error));
+        } else {
             responseObserver.onNext(Empty.getDefaultInstance());
             responseObserver.onCompleted();
-        } catch (Exception e) {
-            responseObserver.onError(new StatusRuntimeException(Status.fromThrowable(e)));
+        }
+    }
+
+    private static StatusRuntimeException toStatusException(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof ResourceExhaustedException) {
+            return new StatusRuntimeException(Status.RESOURCE_EXHAUSTED.withDescription(cause.getMessage()));
+        }
+        return new StatusRuntimeException(Status.fromThrowable(cause));
+    }
+
+    /**
+     * Принимает поток событий от хаба и подтверждает его одним ответом, когда поток завершён
+     * и все его события обработаны. При первой ошибке поток завершается с ошибкой,
+     * оставшиеся события игнорируются.
+     */
+    private static class BatchObserver<T> implements StreamObserver<T> {
+        private final Function<T, CompletableFuture<Void>> handler;
+        private final StreamObserver<Empty> responseObserver;
+        // незавершённые события плюс сам поток, пока клиент его не закрыл
+        private final AtomicLong pending = new AtomicLong(1);
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private long count;
+
+        BatchObserver(Function<T, CompletableFuture<Void>> handler, StreamObserver<Empty> responseObserver) {
+            this.handler = handler;
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(T event) {
+            if (error.get() != null) {
+                return;
+            }
+            count++;
+            pending.incrementAndGet();
+            try {
+                handler.apply(event).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        fail(e);
+                    }
+                    release();
+                });
+            } catch (Exception e) {
+                fail(e);
+                release();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            log.debug("Клиент прервал передачу пакета после {} событий: {}", count, t.getMessage());
+        }
+
+        @Override
+        public void onCompleted() {
+            log.trace("Получен пакет из {} событий", count);
+            release();
+        }
+
+        private void fail(Throwable e) {
+            if (error.compareAndSet(null, e)) {
+                log.warn("Ошибка обработки события в пакете", e);
+                responseObserver.onError(toStatusException(e));
+            }
+        }
+
+        private void release() {
+            if (pending.decrementAndGet() == 0 && error.get() == null) {
+                responseObserver.onNext(Empty.getDefaultInstance());
+                responseObserver.onCompleted();
+            }
         }
     }
 }
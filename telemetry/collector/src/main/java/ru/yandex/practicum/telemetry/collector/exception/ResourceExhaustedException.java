@@ -0,0 +1,7 @@
+package ru.yandex.practicum.telemetry.collector.exception;
+
+public class ResourceExhaustedException extends RuntimeException {
+    public ResourceExhaustedException(String message) {
+        super(message);
+    }
+}
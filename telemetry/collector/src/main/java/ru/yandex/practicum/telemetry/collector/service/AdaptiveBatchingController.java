@@ -0,0 +1,159 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.telemetry.collector.configuration.AdaptiveBatchingConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подбирает linger.ms и batch.size продюсеров под текущую нагрузку. Пока 99-й перцентиль времени
+ * подтверждения укладывается в цель с запасом, пачки укрупняются: растёт linger.ms, а если пачки
+ * заполняются раньше, чем он истекает, - batch.size. Когда перцентиль выходит за цель, linger.ms
+ * уменьшается вдвое, но только если заметную часть задержки события проводят в очереди продюсера:
+ * иначе задержка складывается на стороне брокера, и более мелкие пачки её только увеличат.
+ * Значения не выходят за границы из {@link AdaptiveBatchingConfig}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "collector.adaptive-batching", name = "enabled", havingValue = "true")
+public class AdaptiveBatchingController implements AutoCloseable {
+    private static final String PRODUCER_METRICS = "producer-metrics";
+    // пачки считаются заполненными, если средний размер достигает этой доли batch.size
+    private static final double FULL_BATCH_RATIO = 0.9;
+    // linger.ms увеличивается, только если перцентиль ниже этой доли цели
+    private static final double HEADROOM_RATIO = 0.5;
+    // linger.ms уменьшается, только если среднее время в очереди продюсера не меньше этой доли перцентиля
+    private static final double QUEUE_TIME_RATIO = 0.2;
+
+    private final KafkaEventProducer producer;
+    private final AdaptiveBatchingConfig config;
+    private final Counter adjustments;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "adaptive-batching");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long lingerMs;
+    private volatile long batchSize;
+    private volatile double lastP99Ms = Double.NaN;
+    private volatile double lastRate;
+    private long lastCount;
+
+    public AdaptiveBatchingController(KafkaEventProducer producer, AdaptiveBatchingConfig config,
+                                      MeterRegistry meterRegistry) {
+        this.producer = producer;
+        this.config = config;
+        this.lingerMs = clampLinger(parse(producer.getProducerProperty(ProducerConfig.LINGER_MS_CONFIG), 0));
+        this.batchSize = clampBatchSize(parse(producer.getProducerProperty(ProducerConfig.BATCH_SIZE_CONFIG), 16_384));
+        this.lastCount = producer.getSendLatency().count();
+
+        this.adjustments = meterRegistry.counter("collector.kafka.adaptive.adjustments");
+        Gauge.builder("collector.kafka.adaptive.linger.ms", this, controller -> controller.lingerMs)
+                .register(meterRegistry);
+        Gauge.builder("collector.kafka.adaptive.batch.size", this, controller -> controller.batchSize)
+                .register(meterRegistry);
+        Gauge.builder("collector.kafka.adaptive.p99.ms", this, controller -> controller.lastP99Ms)
+                .register(meterRegistry);
+        Gauge.builder("collector.kafka.adaptive.rate", this, controller -> controller.lastRate)
+                .register(meterRegistry);
+
+        log.info("Включён подбор настроек пачек продюсера: {}", config);
+        long interval = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void adjust() {
+        try {
+            long count = producer.getSendLatency().count();
+            long samples = count - lastCount;
+            lastCount = count;
+            lastRate = samples * 1000.0 / config.getInterval().toMillis();
+            if (samples < config.getMinSamples()) {
+                log.debug("Недостаточно событий за интервал ({}), настройки продюсера не меняются", samples);
+                return;
+            }
+
+            double p99Ms = p99Ms();
+            lastP99Ms = p99Ms;
+            if (Double.isNaN(p99Ms)) {
+                return;
+            }
+            double targetMs = config.getTargetP99().toMillis();
+            double batchSizeAvg = producer.averageMetric(PRODUCER_METRICS, "batch-size-avg");
+            double queueTimeAvg = producer.averageMetric(PRODUCER_METRICS, "record-queue-time-avg");
+
+            long newLinger = lingerMs;
+            long newBatchSize = batchSize;
+            if (p99Ms > targetMs) {
+                if (Double.isNaN(queueTimeAvg) || queueTimeAvg >= p99Ms * QUEUE_TIME_RATIO) {
+                    newLinger = clampLinger(lingerMs / 2);
+                } else {
+                    log.debug("p99={} мс выше цели, но в очереди продюсера события проводят {} мс, linger.ms не меняется",
+                            p99Ms, queueTimeAvg);
+                }
+            } else if (p99Ms < targetMs * HEADROOM_RATIO) {
+                if (!Double.isNaN(batchSizeAvg) && batchSizeAvg >= batchSize * FULL_BATCH_RATIO) {
+                    newBatchSize = clampBatchSize(batchSize * 2);
+                } else {
+                    newLinger = clampLinger(Math.max(1, lingerMs * 2));
+                }
+            }
+
+            log.debug("p99={} мс, batch-size-avg={}, record-queue-time-avg={} мс, {} событий/с",
+                    p99Ms, batchSizeAvg, queueTimeAvg, lastRate);
+            if (newLinger == lingerMs && newBatchSize == batchSize) {
+                return;
+            }
+
+            log.info("Настройки продюсера: linger.ms {} -> {}, batch.size {} -> {} (p99={} мс, цель {} мс)",
+                    lingerMs, newLinger, batchSize, newBatchSize, p99Ms, targetMs);
+            Map<String, String> overrides = new HashMap<>();
+            overrides.put(ProducerConfig.LINGER_MS_CONFIG, String.valueOf(newLinger));
+            overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, String.valueOf(newBatchSize));
+            producer.reconfigure(overrides);
+            lingerMs = newLinger;
+            batchSize = newBatchSize;
+            adjustments.increment();
+        } catch (Exception e) {
+            log.warn("Ошибка при подборе настроек продюсера", e);
+        }
+    }
+
+    private double p99Ms() {
+        for (ValueAtPercentile percentile : producer.getSendLatency().takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                return percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private long clampLinger(long value) {
+        return Math.max(config.getMinLinger().toMillis(), Math.min(config.getMaxLinger().toMillis(), value));
+    }
+
+    private long clampBatchSize(long value) {
+        return Math.max(config.getMinBatchSize().toBytes(), Math.min(config.getMaxBatchSize().toBytes(), value));
+    }
+
+    private static long parse(String value, long defaultValue) {
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
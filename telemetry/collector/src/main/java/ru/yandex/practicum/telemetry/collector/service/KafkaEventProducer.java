@@ -1,49 +1,486 @@
 package ru.yandex.practicum.telemetry.collector.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.kafka.deserializer.SensorEventBatchDeserializer;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.serializer.ProtobufSerializer;
+import ru.yandex.practicum.telemetry.collector.configuration.AdaptiveBatchingConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.BatchingConfig;
 import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.PartitioningConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.SpillJournalConfig;
+import ru.yandex.practicum.telemetry.collector.exception.ResourceExhaustedException;
+import ru.yandex.practicum.telemetry.collector.service.journal.SpillJournal;
+import ru.yandex.practicum.telemetry.collector.service.partitioning.HotHubPartitioner;
+import ru.yandex.practicum.telemetry.collector.service.partitioning.HotHubTracker;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class KafkaEventProducer implements AutoCloseable {
+    private static final byte[] BATCH_HEADER_VALUE = {1};
+    private static final byte[] PROTOBUF_FORMAT_VALUE = ProtobufSerializer.PROTOBUF_FORMAT.getBytes(StandardCharsets.UTF_8);
 
-    protected final KafkaProducer<String, SpecificRecordBase> producer;
+    // значения сериализуются до отправки, чтобы события из DIRECT-режима уходили без промежуточных объектов;
+    // записи с одним ключом всегда попадают в одну и ту же полосу, поэтому их порядок сохраняется
+    private volatile List<ProducerStripe> stripes;
+    // сбрасывает прежних продюсеров при пересоздании и передаёт отправку новым
+    private final ExecutorService handover = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "producer-handover");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Properties properties;
+    private final int producerCount;
+    // время от передачи события продюсеру до подтверждения брокером
+    @Getter
+    private final Timer sendLatency;
+    protected final GeneralAvroSerializer serializer = new GeneralAvroSerializer();
     protected final EnumMap<KafkaConfig.TopicType, String> topics;
+    protected final KafkaConfig.AckMode ackMode;
+    @Getter
+    protected final KafkaConfig.ValueEncoding valueEncoding;
+    // схема событий датчиков
+    @Getter
+    protected final SchemaVersion schemaVersion;
+    // ограничивает число событий, ещё не подтверждённых брокером
+    protected final Semaphore inFlight;
+    // журнал на диске для событий, которые не удалось передать в Kafka; null, если выключен
+    protected final SpillJournal journal;
+    // события журнала, подтверждения которых ждут клиенты в режиме AFTER_KAFKA, в порядке номеров записей
+    private final Queue<SpilledEvent> spilledEvents = new ConcurrentLinkedQueue<>();
+    private final Thread drainer;
+    // пишет в журнал события, отклонённые брокером в режиме IMMEDIATE, вне сетевого потока продюсера;
+    // null, если журнал выключен или режим AFTER_KAFKA
+    private final ExecutorService spillWriter;
+    private final int drainBatchSize;
+    private final Duration retryBackoff;
+    // накапливает события датчиков по хабам; null, если пачки выключены
+    protected final SensorEventBatcher batcher;
+    // считает скорость событий датчиков хабов; null, если отдельные партиции горячим хабам не отводятся
+    protected final HotHubTracker hotHubTracker;
 
-    public KafkaEventProducer(KafkaConfig kafkaConfig) {
+    public KafkaEventProducer(KafkaConfig kafkaConfig, SpillJournalConfig spillConfig, BatchingConfig batchingConfig,
+                              PartitioningConfig partitioningConfig, AdaptiveBatchingConfig adaptiveBatchingConfig,
+                              MeterRegistry meterRegistry) {
         this.topics = kafkaConfig.getProducer().getTopics();
+        this.ackMode = kafkaConfig.getProducer().getAckMode();
+        this.valueEncoding = kafkaConfig.getProducer().getValueEncoding();
+        this.schemaVersion = kafkaConfig.getProducer().getSchemaVersion();
+        this.inFlight = new Semaphore(kafkaConfig.getProducer().getMaxInFlight());
 
-        // Создаём продюсера используя настройки из конфигурации приложения
-        this.producer = new KafkaProducer<>(kafkaConfig.getProducer().getProperties());
+        // перцентиль считается по одному окну длиной в интервал подбора настроек пачек,
+        // чтобы каждое решение опиралось только на события, подтверждённые после предыдущего
+        this.sendLatency = Timer.builder("collector.kafka.send.latency")
+                .publishPercentiles(0.99)
+                .distributionStatisticExpiry(adaptiveBatchingConfig.getInterval())
+                .distributionStatisticBufferLength(1)
+                .register(meterRegistry);
+
+        // Создаём продюсеров используя настройки из конфигурации приложения
+        this.properties = kafkaConfig.getProducer().getProperties();
+        if (partitioningConfig.isEnabled()) {
+            log.info("Включены отдельные партиции для горячих хабов: {}", partitioningConfig);
+            this.hotHubTracker = new HotHubTracker(partitioningConfig, meterRegistry);
+            properties.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, HotHubPartitioner.class.getName());
+            properties.put(HotHubPartitioner.HOT_HUBS_CONFIG, List.copyOf(partitioningConfig.getHotHubs()));
+            properties.put(HotHubPartitioner.HOT_PARTITIONS_CONFIG, partitioningConfig.getHotPartitions());
+            properties.put(HotHubPartitioner.VIRTUAL_NODES_CONFIG, partitioningConfig.getVirtualNodes());
+        } else {
+            this.hotHubTracker = null;
+        }
+        this.producerCount = Math.max(1, kafkaConfig.getProducer().getProducerCount());
+        this.stripes = createProducers(properties).stream().map(ProducerStripe::new).toList();
+
+        this.drainBatchSize = spillConfig.getDrainBatchSize();
+        this.retryBackoff = spillConfig.getRetryBackoff();
+        if (spillConfig.isEnabled()) {
+            log.info("Включён журнал неотправленных событий: {}", spillConfig);
+            // в режиме AFTER_KAFKA событие в журнале не должно пропасть при падении процесса до отправки
+            this.journal = new SpillJournal(Path.of(spillConfig.getDirectory()),
+                    (int) spillConfig.getSegmentSize().toBytes(), spillConfig.getMaxSegments(),
+                    ackMode == KafkaConfig.AckMode.AFTER_KAFKA);
+            this.drainer = Thread.ofPlatform().name("spill-journal-drainer").daemon().start(this::drain);
+            this.spillWriter = ackMode == KafkaConfig.AckMode.IMMEDIATE
+                    ? Executors.newSingleThreadExecutor(Thread.ofPlatform().name("spill-journal-writer").daemon().factory())
+                    : null;
+        } else {
+            this.journal = null;
+            this.drainer = null;
+            this.spillWriter = null;
+        }
+
+        if (batchingConfig.isEnabled() && valueEncoding == KafkaConfig.ValueEncoding.PROTOBUF) {
+            log.warn("Пачки собираются только из событий Avro, в режиме PROTOBUF события отправляются по одному");
+            this.batcher = null;
+        } else if (batchingConfig.isEnabled()) {
+            log.info("Включена отправка событий датчиков пачками: {}", batchingConfig);
+            this.batcher = new SensorEventBatcher(batchingConfig,
+                    (value, hubId, timestamp) -> sendRecord(value, hubId, timestamp,
+                            KafkaConfig.TopicType.SENSORS_EVENTS, RecordFormat.AVRO_BATCH));
+        } else {
+            this.batcher = null;
+        }
+    }
+
+    private List<KafkaProducer<String, byte[]>> createProducers(Properties properties) {
+        List<KafkaProducer<String, byte[]>> producers = new ArrayList<>(producerCount);
+        for (int i = 0; i < producerCount; i++) {
+            producers.add(new KafkaProducer<>(producerProperties(properties, i, producerCount),
+                    new StringSerializer(), new ByteArraySerializer()));
+        }
+        return List.copyOf(producers);
+    }
+
+    private static Properties producerProperties(Properties properties, int index, int producerCount) {
+        if (producerCount == 1) {
+            return properties;
+        }
+        Properties result = new Properties();
+        result.putAll(properties);
+        // client.id должен быть уникальным, иначе метрики и квоты продюсеров смешиваются
+        String clientId = properties.getProperty(ProducerConfig.CLIENT_ID_CONFIG);
+        if (clientId != null) {
+            result.put(ProducerConfig.CLIENT_ID_CONFIG, clientId + "-" + index);
+        }
+        return result;
+    }
+
+    private void dispatch(ProducerRecord<String, byte[]> record, Callback callback) {
+        // полоса могла смениться между чтением списка и отправкой; новый список к этому моменту уже опубликован
+        while (!stripeFor(record.key()).send(record, callback)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private ProducerStripe stripeFor(String key) {
+        List<ProducerStripe> stripes = this.stripes;
+        if (stripes.size() == 1) {
+            return stripes.get(0);
+        }
+        return stripes.get(Math.floorMod(key.hashCode(), stripes.size()));
+    }
+
+    public String getProducerProperty(String name) {
+        Object value = properties.get(name);
+        return value == null ? null : String.valueOf(value);
+    }
+
+    /**
+     * Среднее по всем продюсерам значение метрики клиента Kafka или {@link Double#NaN}, если данных нет.
+     */
+    public double averageMetric(String group, String name) {
+        double sum = 0;
+        int count = 0;
+        for (ProducerStripe stripe : stripes) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : stripe.getProducer().metrics().entrySet()) {
+                if (entry.getKey().group().equals(group) && entry.getKey().name().equals(name)
+                        && entry.getValue().metricValue() instanceof Double value && !value.isNaN()) {
+                    sum += value;
+                    count++;
+                }
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
     }
 
-    public void send(SpecificRecordBase event, String hubId, Instant timestamp, KafkaConfig.TopicType topicType) {
+    /**
+     * Пересоздаёт продюсеров с изменёнными настройками. Новые продюсеры сразу принимают события, но передают их
+     * брокеру только после того, как прежний продюсер той же полосы сбросит свои, поэтому порядок событий хаба
+     * сохраняется, а потоки отправки не ждут сброса.
+     */
+    public synchronized void reconfigure(Map<String, String> overrides) {
+        properties.putAll(overrides);
+        List<ProducerStripe> previous = stripes;
+        List<ProducerStripe> next = createProducers(properties).stream().map(ProducerStripe::successor).toList();
+        stripes = next;
+        for (int i = 0; i < previous.size(); i++) {
+            previous.get(i).handOver(next.get(i), handover);
+        }
+        log.info("Продюсеры пересозданы с настройками {}", overrides);
+    }
+
+    public CompletableFuture<Void> send(SpecificRecordBase event, String hubId, Instant timestamp,
+                                        KafkaConfig.TopicType topicType) {
         String topic = topics.get(topicType);
-        ProducerRecord<String, SpecificRecordBase> record = new ProducerRecord<>(
+        log.trace("Сохранение события {} связанное с хабом {} в топик {}",
+                event.getClass().getSimpleName(), hubId, topic);
+
+        return send(serializer.serialize(topic, event), hubId, timestamp.toEpochMilli(), topicType);
+    }
+
+    /**
+     * Отправляет уже сериализованное событие в Kafka. В режиме {@link KafkaConfig.AckMode#AFTER_KAFKA}
+     * возвращаемый future завершается после подтверждения записи брокером, иначе - сразу.
+     *
+     * @throws ResourceExhaustedException если достигнут лимит неподтверждённых событий
+     */
+    public CompletableFuture<Void> send(byte[] value, String hubId, long timestamp, KafkaConfig.TopicType topicType) {
+        if (hotHubTracker != null && topicType == KafkaConfig.TopicType.SENSORS_EVENTS) {
+            hotHubTracker.record(hubId);
+        }
+        CompletableFuture<Void> result = batcher != null && topicType == KafkaConfig.TopicType.SENSORS_EVENTS
+                ? batcher.add(hubId, value, timestamp)
+                : sendRecord(value, hubId, timestamp, topicType, RecordFormat.AVRO);
+
+        return ackMode == KafkaConfig.AckMode.AFTER_KAFKA ? result : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Отправляет событие датчика в формате protobuf, как оно пришло по gRPC, без перекодирования в Avro.
+     */
+    public CompletableFuture<Void> sendProtobuf(byte[] value, String hubId, long timestamp) {
+        if (hotHubTracker != null) {
+            hotHubTracker.record(hubId);
+        }
+        CompletableFuture<Void> result = sendRecord(value, hubId, timestamp,
+                KafkaConfig.TopicType.SENSORS_EVENTS, RecordFormat.PROTOBUF);
+
+        return ackMode == KafkaConfig.AckMode.AFTER_KAFKA ? result : CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> sendRecord(byte[] value, String key, long timestamp,
+                                               KafkaConfig.TopicType topicType, RecordFormat format) {
+        String topic = topics.get(topicType);
+        ProducerRecord<String, byte[]> record = toRecord(topic, value, key, timestamp, format);
+
+        // пока в журнале есть события, новые пишутся за ними, чтобы не обгонять их при отправке;
+        // isEmpty читает счётчик журнала без блокировки
+        if (journal != null && !journal.isEmpty()) {
+            return spill(value, key, timestamp, topicType, format);
+        }
+
+        if (!inFlight.tryAcquire()) {
+            if (journal != null) {
+                return spill(value, key, timestamp, topicType, format);
+            }
+            throw new ResourceExhaustedException("Превышен лимит неподтверждённых событий для топика " + topic);
+        }
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        long started = System.nanoTime();
+        try {
+            dispatch(record, (metadata, exception) -> {
+                if (exception == null) {
+                    inFlight.release();
+                    sendLatency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    result.complete(null);
+                } else if (spillWriter != null) {
+                    // клиенту уже ответили, поэтому событие сохраняется в журнал. Порядок при этом не сохраняется:
+                    // события хаба, переданные продюсеру после этого, могут оказаться в Kafka раньше него
+                    log.warn("Не удалось сохранить событие с ключом {} в топик {}, событие будет записано в журнал",
+                            key, topic, exception);
+                    result.complete(null);
+                    spillLater(value, key, timestamp, topicType, format);
+                } else {
+                    inFlight.release();
+                    // в режиме AFTER_KAFKA ошибка возвращается клиенту: запись в журнал здесь поставила бы
+                    // событие после уже подтверждённых событий с тем же ключом
+                    log.warn("Не удалось сохранить событие с ключом {} в топик {}", key, topic, exception);
+                    result.completeExceptionally(exception);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            if (journal != null) {
+                log.warn("Не удалось передать событие с ключом {} продюсеру, событие записано в журнал", key, e);
+                return spill(value, key, timestamp, topicType, format);
+            }
+            throw e;
+        }
+
+        return result;
+    }
+
+    /**
+     * Записывает событие в журнал на потоке {@link #spillWriter}. Разрешение {@link #inFlight} освобождается
+     * только после записи, поэтому очередь потока ограничена лимитом неподтверждённых событий.
+     */
+    private void spillLater(byte[] value, String key, long timestamp, KafkaConfig.TopicType topicType,
+                            RecordFormat format) {
+        try {
+            spillWriter.execute(() -> {
+                try {
+                    spill(value, key, timestamp, topicType, format);
+                } catch (RuntimeException e) {
+                    log.error("Не удалось записать в журнал событие с ключом {}, событие потеряно", key, e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            log.error("Коллектор остановлен, событие с ключом {} не записано в журнал", key);
+        }
+    }
+
+    private static ProducerRecord<String, byte[]> toRecord(String topic, byte[] value, String key, long timestamp,
+                                                           RecordFormat format) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(
                 topic,
                 null,
-                timestamp.toEpochMilli(),
-                hubId,
-                event
+                timestamp,
+                key,
+                value
         );
+        if (format == RecordFormat.AVRO_BATCH) {
+            record.headers().add(SensorEventBatchDeserializer.BATCH_HEADER, BATCH_HEADER_VALUE);
+        } else if (format == RecordFormat.PROTOBUF) {
+            record.headers().add(ProtobufSerializer.FORMAT_HEADER, PROTOBUF_FORMAT_VALUE);
+        }
+        return record;
+    }
 
-        log.trace("Сохранение события {} связанное с хабом {} в топик {}",
-                event.getClass().getSimpleName(), hubId, topic);
+    /**
+     * Записывает событие в журнал. В режиме {@link KafkaConfig.AckMode#AFTER_KAFKA} возвращаемый future
+     * завершается только после отправки события из журнала в Kafka.
+     */
+    private CompletableFuture<Void> spill(byte[] value, String key, long timestamp,
+                                          KafkaConfig.TopicType topicType, RecordFormat format) {
+        SpillJournal.Entry entry = new SpillJournal.Entry(topicType, key, timestamp, value, format);
+        if (ackMode != KafkaConfig.AckMode.AFTER_KAFKA) {
+            journal.append(entry);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        // запись и постановка в очередь под монитором журнала, чтобы очередь шла в порядке номеров записей
+        synchronized (journal) {
+            spilledEvents.add(new SpilledEvent(journal.append(entry), result));
+        }
+        return result;
+    }
 
-        producer.send(record);
+    private void completeSpilled(long committed) {
+        SpilledEvent event;
+        while ((event = spilledEvents.peek()) != null && event.number() < committed) {
+            spilledEvents.poll().result().complete(null);
+        }
+    }
+
+    /**
+     * Отправляет события из журнала в Kafka в порядке записи. Событие помечается отправленным только
+     * после подтверждения брокером всех предшествующих ему событий пачки, поэтому после сбоя
+     * часть событий может быть отправлена повторно, но не теряется и не переупорядочивается.
+     */
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<SpillJournal.Entry> entries = journal.peek(drainBatchSize, retryBackoff.toMillis());
+                if (entries.isEmpty()) {
+                    continue;
+                }
+
+                List<Future<RecordMetadata>> futures = new ArrayList<>(entries.size());
+                for (SpillJournal.Entry entry : entries) {
+                    CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+                    dispatch(toRecord(
+                            topics.get(entry.topicType()),
+                            entry.value(),
+                            entry.key(),
+                            entry.timestamp(),
+                            entry.format()
+                    ), (metadata, exception) -> {
+                        if (exception == null) {
+                            future.complete(metadata);
+                        } else {
+                            future.completeExceptionally(exception);
+                        }
+                    });
+                    futures.add(future);
+                }
+
+                int sent = 0;
+                try {
+                    for (Future<RecordMetadata> future : futures) {
+                        future.get();
+                        sent++;
+                    }
+                } finally {
+                    journal.commit(sent);
+                    completeSpilled(journal.committed());
+                }
+                log.debug("Из журнала отправлено {} событий, осталось {}", sent, journal.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("Не удалось отправить события из журнала, повтор через {}", retryBackoff, e);
+                try {
+                    Thread.sleep(retryBackoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
     }
 
     @Override
     public void close() {
-        producer.flush();
-        producer.close(Duration.ofSeconds(10));
+        if (batcher != null) {
+            batcher.close();
+        }
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(retryBackoff.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        handover.shutdown();
+        stripes.forEach(stripe -> stripe.close(Duration.ofSeconds(10)));
+        if (spillWriter != null) {
+            // при закрытии продюсеров отклонённые события ещё ставятся в очередь записи в журнал
+            spillWriter.shutdown();
+            try {
+                spillWriter.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            // неотправленные события остаются в журнале до следующего запуска
+            journal.close();
+            SpilledEvent event;
+            while ((event = spilledEvents.poll()) != null) {
+                event.result().completeExceptionally(
+                        new IllegalStateException("Коллектор остановлен до отправки события из журнала"));
+            }
+        }
+    }
+
+    private record SpilledEvent(long number, CompletableFuture<Void> result) {
     }
-}
\ No newline at end of file
+}
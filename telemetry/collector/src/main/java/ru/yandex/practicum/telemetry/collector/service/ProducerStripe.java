@@ -0,0 +1,151 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Продюсер одной полосы {@link KafkaEventProducer}. Записи с одним ключом всегда идут через одну полосу.
+ * <p>
+ * При пересоздании продюсеров новая полоса сразу принимает записи, но копит их в очереди, пока продюсер
+ * прежней полосы не сбросит всё, что получил: только после этого очередь передаётся новому продюсеру, поэтому
+ * записи с одним ключом не обгоняют друг друга. Сброс идёт вне потоков отправки и не останавливает их.
+ */
+@Slf4j
+final class ProducerStripe {
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    @Getter
+    private final KafkaProducer<String, byte[]> producer;
+    // отправка - под чтением, вывод полосы и передача очереди - под записью; у каждой полосы своя блокировка
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // записи, принятые до готовности полосы; null - полоса готова и отправляет сразу
+    private volatile Queue<Pending> waiting;
+    // полоса заменена новой и записей больше не принимает
+    private boolean retired;
+    // завершается, когда очередь передана продюсеру
+    private final CompletableFuture<Void> ready;
+
+    ProducerStripe(KafkaProducer<String, byte[]> producer) {
+        this.producer = producer;
+        this.ready = CompletableFuture.completedFuture(null);
+    }
+
+    private ProducerStripe(KafkaProducer<String, byte[]> producer, Queue<Pending> waiting) {
+        this.producer = producer;
+        this.waiting = waiting;
+        this.ready = new CompletableFuture<>();
+    }
+
+    /**
+     * Создаёт полосу, которая копит записи до передачи ей отправки через {@link #handOver}.
+     */
+    static ProducerStripe successor(KafkaProducer<String, byte[]> producer) {
+        return new ProducerStripe(producer, new ConcurrentLinkedQueue<>());
+    }
+
+    /**
+     * Выводит полосу и передаёт отправку полосе {@code next}: она начнёт отправлять, когда эта полоса передаст
+     * свою очередь и сбросит продюсер. Продюсер этой полосы закрывается после передачи. Вызывается после того,
+     * как {@code next} стала доступна потокам отправки.
+     */
+    void handOver(ProducerStripe next, Executor executor) {
+        retire();
+        ready.thenRunAsync(() -> next.takeOver(this), executor);
+    }
+
+    /**
+     * Передаёт запись продюсеру полосы или ставит её в очередь, если полоса ещё не готова.
+     *
+     * @return false, если полоса уже заменена и запись нужно отправить через новую
+     */
+    boolean send(ProducerRecord<String, byte[]> record, Callback callback) {
+        lock.readLock().lock();
+        try {
+            if (retired) {
+                return false;
+            }
+            Queue<Pending> queue = waiting;
+            if (queue != null) {
+                queue.add(new Pending(record, callback));
+            } else {
+                producer.send(record, callback);
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Дожидается передачи очереди продюсеру, сбрасывает и закрывает его.
+     */
+    void close(Duration timeout) {
+        try {
+            ready.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Очередь полосы не передана продюсеру за {}, записи из неё не будут отправлены", timeout, e);
+        }
+        producer.flush();
+        producer.close(CLOSE_TIMEOUT);
+    }
+
+    private void retire() {
+        lock.writeLock().lock();
+        try {
+            retired = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void takeOver(ProducerStripe previous) {
+        try {
+            // всё, что прежняя полоса приняла до вывода, уже передано её продюсеру
+            previous.producer.flush();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сбросить прежний продюсер", e);
+        }
+        Queue<Pending> queue = waiting;
+        while (true) {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                try {
+                    producer.send(pending.record(), pending.callback());
+                } catch (RuntimeException e) {
+                    pending.callback().onCompletion(null, e);
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                // под записью новых записей в очереди не появится: пустая очередь - полоса готова
+                if (queue.isEmpty()) {
+                    waiting = null;
+                    break;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        ready.complete(null);
+        previous.producer.close(CLOSE_TIMEOUT);
+    }
+
+    private record Pending(ProducerRecord<String, byte[]> record, Callback callback) {
+    }
+}
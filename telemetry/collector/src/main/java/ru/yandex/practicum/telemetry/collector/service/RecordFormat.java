@@ -0,0 +1,13 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+/**
+ * Формат значения записи в Kafka; определяет заголовки, по которым консьюмер выбирает способ чтения.
+ */
+public enum RecordFormat {
+    // одно событие Avro
+    AVRO,
+    // пачка событий датчиков SensorEventBatchAvro
+    AVRO_BATCH,
+    // одно событие датчика SensorEventProto
+    PROTOBUF
+}
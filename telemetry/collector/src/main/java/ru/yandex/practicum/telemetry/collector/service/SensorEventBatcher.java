@@ -0,0 +1,144 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import ru.yandex.practicum.kafka.serializer.AvroEncoding;
+import ru.yandex.practicum.telemetry.collector.configuration.BatchingConfig;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накапливает уже сериализованные события датчиков по хабам и отправляет их одной записью
+ * SensorEventBatchAvro. Пачка собирается из готовых байтов событий без повторной сериализации:
+ * бинарный Avro массива - это счётчик элементов и закодированные элементы подряд.
+ * <p>
+ * Все пачки отправляются с одного потока планировщика в том порядке, в котором они закрыты, - и по истечении
+ * интервала, и при заполнении, - поэтому следующая пачка хаба не уходит раньше предыдущей.
+ */
+@Slf4j
+public class SensorEventBatcher implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface BatchSender {
+        CompletableFuture<Void> send(byte[] value, String hubId, long timestamp);
+    }
+
+    private final BatchSender sender;
+    private final long lingerNanos;
+    private final int maxEvents;
+    private final ConcurrentHashMap<String, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sensor-event-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SensorEventBatcher(BatchingConfig config, BatchSender sender) {
+        this.sender = sender;
+        this.lingerNanos = config.getLinger().toNanos();
+        this.maxEvents = Math.max(1, config.getMaxEvents());
+        // при закрытии таймеры пачек не ждём, а уже заполненные пачки отправляем
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Добавляет событие в пачку хаба. Возвращаемый future общий для всей пачки
+     * и завершается вместе с её отправкой.
+     */
+    public CompletableFuture<Void> add(String hubId, byte[] value, long timestamp) {
+        Batch[] added = new Batch[1];
+        batches.compute(hubId, (key, current) -> {
+            if (current == null) {
+                current = new Batch(key, timestamp);
+                Batch created = current;
+                current.timer = scheduler.schedule(() -> expire(created), lingerNanos, TimeUnit.NANOSECONDS);
+            }
+            current.events.add(value);
+            added[0] = current;
+            if (current.events.size() >= maxEvents) {
+                // отправка ставится в очередь планировщика, пока пачка ещё не убрана из карты:
+                // следующая пачка хаба может закрыться только после этого
+                current.timer.cancel(false);
+                Batch full = current;
+                scheduler.execute(() -> flush(full));
+                return null;
+            }
+            return current;
+        });
+        return added[0].result;
+    }
+
+    private void expire(Batch batch) {
+        if (batches.remove(batch.hubId, batch)) {
+            flush(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        try {
+            byte[] value = AvroEncoding.encode(encoder -> {
+                encoder.writeString(batch.hubId);
+                encoder.writeArrayStart();
+                encoder.setItemCount(batch.events.size());
+                for (byte[] event : batch.events) {
+                    encoder.startItem();
+                    encoder.writeFixed(event);
+                }
+                encoder.writeArrayEnd();
+            });
+            log.trace("Отправка пачки из {} событий хаба {}", batch.events.size(), batch.hubId);
+            sender.send(value, batch.hubId, batch.timestamp).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    batch.result.completeExceptionally(e);
+                } else {
+                    batch.result.complete(null);
+                }
+            });
+        } catch (IOException e) {
+            batch.result.completeExceptionally(
+                    new SerializationException("Ошибка сериализации пачки событий хаба " + batch.hubId, e));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось отправить пачку из {} событий хаба {}", batch.events.size(), batch.hubId, e);
+            batch.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Отправляет все накопленные пачки, не дожидаясь окончания интервала.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Batch batch : batches.values()) {
+            if (batches.remove(batch.hubId, batch)) {
+                flush(batch);
+            }
+        }
+    }
+
+    private static class Batch {
+        private final String hubId;
+        // время первого события пачки становится временем записи в Kafka
+        private final long timestamp;
+        private final List<byte[]> events = new ArrayList<>();
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private ScheduledFuture<?> timer;
+
+        private Batch(String hubId, long timestamp) {
+            this.hubId = hubId;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.telemetry.collector.service.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.collector.configuration.DuplicateDetectionConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Распознаёт повторную отправку события хабом (hub_id, id, timestamp) в скользящем окне.
+ * Окно разбито на интервалы по времени приёма; в каждом хранится множество 64-битных отпечатков
+ * событий фиксированного размера, поэтому проверка не выделяет память, а объём памяти ограничен.
+ */
+@Slf4j
+@Order(10)
+@Component
+@ConditionalOnProperty(prefix = "collector.duplicates", name = "enabled", havingValue = "true")
+public class DuplicateEventFilter implements SensorEventFilter {
+
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final long bucketMillis;
+    private final int maxEntriesPerBucket;
+    private final Counter checked;
+    private final Counter duplicates;
+    private final LongSupplier clock;
+
+    @Autowired
+    public DuplicateEventFilter(DuplicateDetectionConfig config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, System::currentTimeMillis);
+    }
+
+    DuplicateEventFilter(DuplicateDetectionConfig config, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.clock = clock;
+        this.buckets = new AtomicReferenceArray<>(config.getBuckets());
+        this.bucketMillis = Math.max(1, config.getWindow().toMillis() / config.getBuckets());
+        this.maxEntriesPerBucket = config.getMaxEntriesPerBucket();
+        this.checked = meterRegistry.counter("collector.duplicates.checked");
+        this.duplicates = meterRegistry.counter("collector.duplicates.found");
+        Gauge.builder("collector.duplicates.hit.ratio", this,
+                        filter -> filter.checked.count() == 0 ? 0 : filter.duplicates.count() / filter.checked.count())
+                .register(meterRegistry);
+        log.info("Включено распознавание повторных событий: {}", config);
+    }
+
+    @Override
+    public boolean accept(SensorEventProto event) {
+        checked.increment();
+        long fingerprint = fingerprint(event);
+        long epoch = clock.getAsLong() / bucketMillis;
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && epoch - bucket.epoch < buckets.length() && bucket.contains(fingerprint)) {
+                duplicates.increment();
+                log.trace("Повторное событие датчика {} хаба {}, отправка пропущена", event.getId(), event.getHubId());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onSent(SensorEventProto event) {
+        currentBucket().add(fingerprint(event));
+    }
+
+    private Bucket currentBucket() {
+        long epoch = clock.getAsLong() / bucketMillis;
+        int index = (int) (epoch % buckets.length());
+        Bucket bucket = buckets.get(index);
+        if (bucket == null || bucket.epoch < epoch) {
+            Bucket fresh = new Bucket(epoch, maxEntriesPerBucket);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+            return buckets.get(index);
+        }
+        return bucket;
+    }
+
+    private static long fingerprint(SensorEventProto event) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, event.getHubId());
+        hash = mix(hash, event.getId());
+        hash = (hash ^ event.getTimestamp().getSeconds()) * 0x100000001b3L;
+        hash = (hash ^ event.getTimestamp().getNanos()) * 0x100000001b3L;
+        // финальное перемешивание splitmix64, чтобы младшие биты были равномерными для индекса
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        hash = hash ^ (hash >>> 31);
+        // ноль обозначает пустую ячейку
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // разделитель, чтобы ("ab", "c") и ("a", "bc") давали разные отпечатки
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+
+    /**
+     * Множество отпечатков с открытой адресацией без блокировок. Заполняется не более чем наполовину.
+     */
+    private static final class Bucket {
+        private final long epoch;
+        private final AtomicLongArray slots;
+        private final AtomicInteger size = new AtomicInteger();
+        private final int maxEntries;
+
+        private Bucket(long epoch, int maxEntries) {
+            this.epoch = epoch;
+            this.maxEntries = maxEntries;
+            this.slots = new AtomicLongArray(Integer.highestOneBit(Math.max(1, maxEntries)) << 2);
+        }
+
+        private boolean contains(long fingerprint) {
+            int mask = slots.length() - 1;
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = slots.get(i);
+                if (slot == fingerprint) {
+                    return true;
+                }
+                if (slot == 0) {
+                    return false;
+                }
+            }
+        }
+
+        private void add(long fingerprint) {
+            if (size.get() >= maxEntries) {
+                return;
+            }
+            int mask = slots.length() - 1;
+            for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+                long slot = slots.get(i);
+                if (slot == fingerprint) {
+                    return;
+                }
+                if (slot == 0 && slots.compareAndSet(i, 0, fingerprint)) {
+                    size.incrementAndGet();
+                    return;
+                }
+                if (slots.get(i) == fingerprint) {
+                    return;
+                }
+            }
+        }
+    }
+}
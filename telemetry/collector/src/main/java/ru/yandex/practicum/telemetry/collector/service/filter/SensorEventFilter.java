@@ -0,0 +1,19 @@
+package ru.yandex.practicum.telemetry.collector.service.filter;
+
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+
+/**
+ * Фильтр событий датчиков перед отправкой в Kafka.
+ * Отклонённое событие подтверждается клиенту, но не передаётся обработчику.
+ */
+public interface SensorEventFilter {
+
+    boolean accept(SensorEventProto event);
+
+    /**
+     * Вызывается после того, как принятое событие успешно передано обработчику
+     * (в режиме ack-mode: after-kafka - после подтверждения брокером).
+     */
+    default void onSent(SensorEventProto event) {
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.telemetry.collector.service.filter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.telemetry.collector.configuration.DeduplicationConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Отбрасывает показания, не изменившиеся с последней отправки для того же датчика хаба.
+ * Последние показания хранятся в ограниченном LRU-кэше, разбитом на сегменты для снижения конкуренции.
+ * Раз в max-silence показания отправляются даже без изменений, чтобы было видно, что датчик на связи.
+ */
+@Slf4j
+@Order(20)
+@Component
+@ConditionalOnProperty(prefix = "collector.dedup", name = "enabled", havingValue = "true")
+public class UnchangedReadingFilter implements SensorEventFilter {
+    private static final int STRIPES = 16;
+
+    private final Map<String, LastReading>[] stripes;
+    private final long maxSilenceMillis;
+
+    @SuppressWarnings("unchecked")
+    public UnchangedReadingFilter(DeduplicationConfig config) {
+        this.maxSilenceMillis = config.getMaxSilence().toMillis();
+        int stripeCapacity = Math.max(1, config.getMaxEntries() / STRIPES);
+        this.stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, LastReading> eldest) {
+                    return size() > stripeCapacity;
+                }
+            };
+        }
+        log.info("Включено подавление неизменных показаний: {}", config);
+    }
+
+    @Override
+    public boolean accept(SensorEventProto event) {
+        String key = key(event);
+        Map<String, LastReading> stripe = stripeFor(key);
+        LastReading last;
+        synchronized (stripe) {
+            last = stripe.get(key);
+        }
+        if (last == null || !last.payload().equals(payloadOf(event))) {
+            return true;
+        }
+        if (toEpochMilli(event) - last.timestamp() >= maxSilenceMillis) {
+            return true;
+        }
+        log.trace("Показания датчика {} хаба {} не изменились, событие не отправляется", event.getId(), event.getHubId());
+        return false;
+    }
+
+    @Override
+    public void onSent(SensorEventProto event) {
+        String key = key(event);
+        LastReading reading = new LastReading(payloadOf(event), toEpochMilli(event));
+        Map<String, LastReading> stripe = stripeFor(key);
+        synchronized (stripe) {
+            LastReading last = stripe.get(key);
+            if (last == null || last.timestamp() <= reading.timestamp()) {
+                stripe.put(key, reading);
+            }
+        }
+    }
+
+    private Map<String, LastReading> stripeFor(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static String key(SensorEventProto event) {
+        return event.getHubId() + ':' + event.getId();
+    }
+
+    private static long toEpochMilli(SensorEventProto event) {
+        return event.getTimestamp().getSeconds() * 1000 + event.getTimestamp().getNanos() / 1_000_000;
+    }
+
+    private static Object payloadOf(SensorEventProto event) {
+        return switch (event.getPayloadCase()) {
+            case MOTION_SENSOR_EVENT -> event.getMotionSensorEvent();
+            case TEMPERATURE_SENSOR_EVENT -> event.getTemperatureSensorEvent();
+            case LIGHT_SENSOR_EVENT -> event.getLightSensorEvent();
+            case CLIMATE_SENSOR_EVENT -> event.getClimateSensorEvent();
+            case SWITCH_SENSOR_EVENT -> event.getSwitchSensorEvent();
+            case PAYLOAD_NOT_SET -> event.getPayloadCase();
+        };
+    }
+
+    private record LastReading(Object payload, long timestamp) {
+    }
+}
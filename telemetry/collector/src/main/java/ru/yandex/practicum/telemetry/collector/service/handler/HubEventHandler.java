@@ -2,9 +2,11 @@ package ru.yandex.practicum.telemetry.collector.service.handler;
 
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface HubEventHandler {
 
     HubEventProto.PayloadCase getMessageType();
 
-    void handle(HubEventProto event);
+    CompletableFuture<Void> handle(HubEventProto event);
 }
@@ -2,9 +2,11 @@ package ru.yandex.practicum.telemetry.collector.service.handler;
 
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface SensorEventHandler {
 
     SensorEventProto.PayloadCase getMessageType();
 
-    void handle(SensorEventProto event);
+    CompletableFuture<Void> handle(SensorEventProto event);
 }
@@ -1,27 +1,54 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.hub;
 
-import lombok.RequiredArgsConstructor;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.common.errors.SerializationException;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
+import ru.yandex.practicum.kafka.serializer.AvroEncoding;
 import ru.yandex.practicum.kafka.telemetry.event.HubEventAvro;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 import ru.yandex.practicum.telemetry.collector.service.handler.HubEventHandler;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig.TopicType.HUBS_EVENTS;
 
-@RequiredArgsConstructor
 public abstract class BaseHubEventHandler<T extends SpecificRecordBase> implements HubEventHandler {
     protected final KafkaEventProducer producer;
+    // номер ветки union-поля payload в схеме HubEventAvro для событий этого типа
+    private final int payloadIndex;
+
+    protected BaseHubEventHandler(KafkaEventProducer producer) {
+        this.producer = producer;
+        this.payloadIndex = HubEventAvro.getClassSchema().getField("payload").schema()
+                .getIndexNamed(getPayloadSchema().getFullName());
+    }
+
+    protected abstract Schema getPayloadSchema();
 
     protected abstract T mapToAvro(HubEventProto event);
 
+    /**
+     * Пишет данные события в бинарном формате Avro в порядке полей {@link #getPayloadSchema()}.
+     * Результат должен совпадать с сериализацией {@link #mapToAvro(HubEventProto)}.
+     */
+    protected abstract void writePayload(HubEventProto event, Encoder encoder) throws IOException;
+
     @Override
-    public void handle(HubEventProto event) {
+    public CompletableFuture<Void> handle(HubEventProto event) {
         if (!event.getPayloadCase().equals(getMessageType())) {
             throw new IllegalArgumentException("Неизвестный тип события: " + event.getPayloadCase());
         }
+
+        if (producer.getValueEncoding() == KafkaConfig.ValueEncoding.DIRECT) {
+            long timestamp = toEpochMilli(event);
+            return producer.send(transcode(event, timestamp), event.getHubId(), timestamp, HUBS_EVENTS);
+        }
+
         T payload = mapToAvro(event);
 
         Instant instant = Instant.ofEpochSecond(
@@ -35,6 +62,23 @@ public abstract class BaseHubEventHandler<T extends SpecificRecordBase> implemen
                 .setPayload(payload)
                 .build();
 
-        producer.send(eventAvro, event.getHubId(), instant, HUBS_EVENTS);
+        return producer.send(eventAvro, event.getHubId(), instant, HUBS_EVENTS);
+    }
+
+    private static long toEpochMilli(HubEventProto event) {
+        return event.getTimestamp().getSeconds() * 1000 + event.getTimestamp().getNanos() / 1_000_000;
+    }
+
+    private byte[] transcode(HubEventProto event, long timestamp) {
+        try {
+            return AvroEncoding.encode(encoder -> {
+                encoder.writeString(event.getHubId());
+                encoder.writeLong(timestamp);
+                encoder.writeIndex(payloadIndex);
+                writePayload(event, encoder);
+            });
+        } catch (IOException e) {
+            throw new SerializationException("Ошибка кодирования события хаба " + event.getHubId(), e);
+        }
     }
-}
\ No newline at end of file
+}
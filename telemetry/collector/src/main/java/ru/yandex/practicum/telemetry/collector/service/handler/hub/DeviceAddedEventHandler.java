@@ -1,5 +1,7 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.hub;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceAddedEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
@@ -7,6 +9,8 @@ import ru.yandex.practicum.kafka.telemetry.event.DeviceAddedEventAvro;
 import ru.yandex.practicum.kafka.telemetry.event.DeviceTypeAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class DeviceAddedEventHandler extends BaseHubEventHandler<DeviceAddedEventAvro> {
     public DeviceAddedEventHandler(KafkaEventProducer producer) {
@@ -18,6 +22,11 @@ public class DeviceAddedEventHandler extends BaseHubEventHandler<DeviceAddedEven
         return HubEventProto.PayloadCase.DEVICE_ADDED;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return DeviceAddedEventAvro.getClassSchema();
+    }
+
     @Override
     protected DeviceAddedEventAvro mapToAvro(HubEventProto event) {
         DeviceAddedEventProto deviceAddedEvent = event.getDeviceAdded();
@@ -28,4 +37,12 @@ public class DeviceAddedEventHandler extends BaseHubEventHandler<DeviceAddedEven
                 .setType(deviceTypeAvro)
                 .build();
     }
+
+    @Override
+    protected void writePayload(HubEventProto event, Encoder encoder) throws IOException {
+        DeviceAddedEventProto deviceAddedEvent = event.getDeviceAdded();
+
+        encoder.writeString(deviceAddedEvent.getId());
+        encoder.writeEnum(DeviceTypeAvro.valueOf(deviceAddedEvent.getType().name()).ordinal());
+    }
 }
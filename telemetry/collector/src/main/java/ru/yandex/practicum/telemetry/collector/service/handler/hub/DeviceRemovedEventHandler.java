@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.hub;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceRemovedEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.kafka.telemetry.event.DeviceRemovedEventAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class DeviceRemovedEventHandler extends BaseHubEventHandler<DeviceRemovedEventAvro> {
 
@@ -18,6 +22,11 @@ public class DeviceRemovedEventHandler extends BaseHubEventHandler<DeviceRemoved
         return HubEventProto.PayloadCase.DEVICE_REMOVED;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return DeviceRemovedEventAvro.getClassSchema();
+    }
+
     @Override
     protected DeviceRemovedEventAvro mapToAvro(HubEventProto event) {
         DeviceRemovedEventProto deviceRemovedEvent = event.getDeviceRemoved();
@@ -26,4 +35,9 @@ public class DeviceRemovedEventHandler extends BaseHubEventHandler<DeviceRemoved
                 .setId(deviceRemovedEvent.getId())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void writePayload(HubEventProto event, Encoder encoder) throws IOException {
+        encoder.writeString(event.getDeviceRemoved().getId());
+    }
+}
@@ -1,5 +1,7 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.hub;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.DeviceActionProto;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
@@ -8,6 +10,7 @@ import ru.yandex.practicum.grpc.telemetry.event.ScenarioConditionProto;
 import ru.yandex.practicum.kafka.telemetry.event.*;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
 import java.util.List;
 
 @Component
@@ -21,6 +24,11 @@ public class ScenarioAddedEventHandler extends BaseHubEventHandler<ScenarioAdded
         return HubEventProto.PayloadCase.SCENARIO_ADDED;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return ScenarioAddedEventAvro.getClassSchema();
+    }
+
     @Override
     protected ScenarioAddedEventAvro mapToAvro(HubEventProto event) {
         ScenarioAddedEventProto scenarioAddedEvent = event.getScenarioAdded();
@@ -64,4 +72,51 @@ public class ScenarioAddedEventHandler extends BaseHubEventHandler<ScenarioAdded
             case VALUE_NOT_SET -> null;
         };
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void writePayload(HubEventProto event, Encoder encoder) throws IOException {
+        ScenarioAddedEventProto scenarioAddedEvent = event.getScenarioAdded();
+
+        encoder.writeString(scenarioAddedEvent.getName());
+
+        encoder.writeArrayStart();
+        encoder.setItemCount(scenarioAddedEvent.getConditionCount());
+        for (ScenarioConditionProto condition : scenarioAddedEvent.getConditionList()) {
+            encoder.startItem();
+            writeCondition(condition, encoder);
+        }
+        encoder.writeArrayEnd();
+
+        encoder.writeArrayStart();
+        encoder.setItemCount(scenarioAddedEvent.getActionCount());
+        for (DeviceActionProto action : scenarioAddedEvent.getActionList()) {
+            encoder.startItem();
+            writeAction(action, encoder);
+        }
+        encoder.writeArrayEnd();
+    }
+
+    private static void writeCondition(ScenarioConditionProto scenarioCondition, Encoder encoder) throws IOException {
+        encoder.writeString(scenarioCondition.getSensorId());
+        encoder.writeEnum(ConditionTypeAvro.valueOf(scenarioCondition.getType().name()).ordinal());
+        encoder.writeEnum(ConditionOperationAvro.valueOf(scenarioCondition.getOperation().name()).ordinal());
+
+        // union {null, int, boolean}: значение всегда приводится к int, как в getValue
+        Object value = getValue(scenarioCondition);
+        if (value == null) {
+            encoder.writeIndex(0);
+            encoder.writeNull();
+        } else {
+            encoder.writeIndex(1);
+            encoder.writeInt((Integer) value);
+        }
+    }
+
+    private static void writeAction(DeviceActionProto deviceAction, Encoder encoder) throws IOException {
+        encoder.writeString(deviceAction.getSensorId());
+        encoder.writeEnum(ActionTypeAvro.valueOf(deviceAction.getType().name()).ordinal());
+        // union {null, int}: значение заполняется всегда, как в mapToActionAvro
+        encoder.writeIndex(1);
+        encoder.writeInt(deviceAction.getValue());
+    }
+}
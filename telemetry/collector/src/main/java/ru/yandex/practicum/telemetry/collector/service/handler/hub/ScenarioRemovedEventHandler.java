@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.hub;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.HubEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.ScenarioRemovedEventProto;
 import ru.yandex.practicum.kafka.telemetry.event.ScenarioRemovedEventAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class ScenarioRemovedEventHandler extends BaseHubEventHandler<ScenarioRemovedEventAvro> {
     public ScenarioRemovedEventHandler(KafkaEventProducer producer) {
@@ -17,6 +21,11 @@ public class ScenarioRemovedEventHandler extends BaseHubEventHandler<ScenarioRem
         return HubEventProto.PayloadCase.SCENARIO_REMOVED;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return ScenarioRemovedEventAvro.getClassSchema();
+    }
+
     @Override
     protected ScenarioRemovedEventAvro mapToAvro(HubEventProto event) {
         ScenarioRemovedEventProto scenarioRemovedEvent = event.getScenarioRemoved();
@@ -25,4 +34,9 @@ public class ScenarioRemovedEventHandler extends BaseHubEventHandler<ScenarioRem
                 .setName(scenarioRemovedEvent.getName())
                 .build();
     }
+
+    @Override
+    protected void writePayload(HubEventProto event, Encoder encoder) throws IOException {
+        encoder.writeString(event.getScenarioRemoved().getName());
+    }
 }
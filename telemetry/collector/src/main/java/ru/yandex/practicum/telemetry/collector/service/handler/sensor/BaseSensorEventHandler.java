@@ -1,30 +1,69 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.kafka.common.errors.SerializationException;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.kafka.converter.SensorEventConverter;
+import ru.yandex.practicum.kafka.serializer.AvroEncoding;
 import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 import ru.yandex.practicum.telemetry.collector.service.handler.SensorEventHandler;
 
+import java.io.IOException;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig.TopicType.SENSORS_EVENTS;
 
 @Slf4j
-@RequiredArgsConstructor
 public abstract class BaseSensorEventHandler<T extends SpecificRecordBase> implements SensorEventHandler {
     protected final KafkaEventProducer producer;
+    // номер ветки union-поля payload в схеме SensorEventAvro для показаний этого датчика
+    private final int payloadIndex;
+
+    protected BaseSensorEventHandler(KafkaEventProducer producer) {
+        this.producer = producer;
+        this.payloadIndex = SensorEventAvro.getClassSchema().getField("payload").schema()
+                .getIndexNamed(getPayloadSchema().getFullName());
+    }
+
+    protected abstract Schema getPayloadSchema();
 
     protected abstract T mapToAvro(SensorEventProto event);
 
+    /**
+     * Пишет показания датчика в бинарном формате Avro в порядке полей {@link #getPayloadSchema()}.
+     * Результат должен совпадать с сериализацией {@link #mapToAvro(SensorEventProto)}.
+     */
+    protected abstract void writePayload(SensorEventProto event, Encoder encoder) throws IOException;
+
+    /**
+     * Пишет показания датчика в схеме v2. Для всех датчиков, кроме датчика температуры, схемы совпадают.
+     */
+    protected void writePayloadV2(SensorEventProto event, Encoder encoder) throws IOException {
+        writePayload(event, encoder);
+    }
+
     @Override
-    public void handle(SensorEventProto event) {
+    public CompletableFuture<Void> handle(SensorEventProto event) {
         if (!event.getPayloadCase().equals(getMessageType())) {
             throw new IllegalArgumentException("Неизвестный тип события: " + event.getPayloadCase());
         }
 
+        if (producer.getValueEncoding() == KafkaConfig.ValueEncoding.PROTOBUF) {
+            return producer.sendProtobuf(event.toByteArray(), event.getHubId(), toEpochMilli(event));
+        }
+
+        if (producer.getValueEncoding() == KafkaConfig.ValueEncoding.DIRECT) {
+            long timestamp = toEpochMilli(event);
+            return producer.send(transcode(event, timestamp), event.getHubId(), timestamp, SENSORS_EVENTS);
+        }
+
         T payload = mapToAvro(event);
 
         Instant instant = Instant.ofEpochSecond(
@@ -39,6 +78,32 @@ public abstract class BaseSensorEventHandler<T extends SpecificRecordBase> imple
                 .setPayload(payload)
                 .build();
 
-        producer.send(eventAvro, event.getHubId(), instant, SENSORS_EVENTS);
+        if (producer.getSchemaVersion() == SchemaVersion.V2) {
+            return producer.send(SensorEventConverter.toV2(eventAvro), event.getHubId(), instant, SENSORS_EVENTS);
+        }
+        return producer.send(eventAvro, event.getHubId(), instant, SENSORS_EVENTS);
+    }
+
+    private static long toEpochMilli(SensorEventProto event) {
+        return event.getTimestamp().getSeconds() * 1000 + event.getTimestamp().getNanos() / 1_000_000;
+    }
+
+    private byte[] transcode(SensorEventProto event, long timestamp) {
+        try {
+            return AvroEncoding.encode(encoder -> {
+                encoder.writeString(event.getId());
+                encoder.writeString(event.getHubId());
+                encoder.writeLong(timestamp);
+                // порядок веток payload в схемах v1 и v2 одинаковый
+                encoder.writeIndex(payloadIndex);
+                if (producer.getSchemaVersion() == SchemaVersion.V2) {
+                    writePayloadV2(event, encoder);
+                } else {
+                    writePayload(event, encoder);
+                }
+            });
+        } catch (IOException e) {
+            throw new SerializationException("Ошибка кодирования события датчика " + event.getId(), e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.ClimateSensorProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class ClimateSensorEventHandler extends BaseSensorEventHandler<ClimateSensorAvro> {
     public ClimateSensorEventHandler(KafkaEventProducer producer) {
@@ -17,6 +21,11 @@ public class ClimateSensorEventHandler extends BaseSensorEventHandler<ClimateSen
         return SensorEventProto.PayloadCase.CLIMATE_SENSOR_EVENT;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return ClimateSensorAvro.getClassSchema();
+    }
+
     @Override
     protected ClimateSensorAvro mapToAvro(SensorEventProto event) {
         ClimateSensorProto climateSensorEvent = event.getClimateSensorEvent();
@@ -27,4 +36,13 @@ public class ClimateSensorEventHandler extends BaseSensorEventHandler<ClimateSen
                 .setCo2Level(climateSensorEvent.getCo2Level())
                 .build();
     }
+
+    @Override
+    protected void writePayload(SensorEventProto event, Encoder encoder) throws IOException {
+        ClimateSensorProto climateSensorEvent = event.getClimateSensorEvent();
+
+        encoder.writeInt(climateSensorEvent.getTemperatureC());
+        encoder.writeInt(climateSensorEvent.getHumidity());
+        encoder.writeInt(climateSensorEvent.getCo2Level());
+    }
 }
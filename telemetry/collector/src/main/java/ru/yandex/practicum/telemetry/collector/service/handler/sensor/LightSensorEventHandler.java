@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.LightSensorProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class LightSensorEventHandler extends BaseSensorEventHandler<LightSensorAvro> {
     public LightSensorEventHandler(KafkaEventProducer producer) {
@@ -17,6 +21,11 @@ public class LightSensorEventHandler extends BaseSensorEventHandler<LightSensorA
         return SensorEventProto.PayloadCase.LIGHT_SENSOR_EVENT;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return LightSensorAvro.getClassSchema();
+    }
+
     @Override
     protected LightSensorAvro mapToAvro(SensorEventProto event) {
         LightSensorProto lightSensorEvent = event.getLightSensorEvent();
@@ -26,4 +35,12 @@ public class LightSensorEventHandler extends BaseSensorEventHandler<LightSensorA
                 .setLuminosity(lightSensorEvent.getLuminosity())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void writePayload(SensorEventProto event, Encoder encoder) throws IOException {
+        LightSensorProto lightSensorEvent = event.getLightSensorEvent();
+
+        encoder.writeInt(lightSensorEvent.getLinkQuality());
+        encoder.writeInt(lightSensorEvent.getLuminosity());
+    }
+}
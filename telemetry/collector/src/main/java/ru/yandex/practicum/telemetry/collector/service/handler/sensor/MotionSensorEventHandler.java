@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.MotionSensorProto;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.kafka.telemetry.event.MotionSensorAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class MotionSensorEventHandler extends BaseSensorEventHandler<MotionSensorAvro> {
     public MotionSensorEventHandler(KafkaEventProducer producer) {
@@ -17,6 +21,11 @@ public class MotionSensorEventHandler extends BaseSensorEventHandler<MotionSenso
         return SensorEventProto.PayloadCase.MOTION_SENSOR_EVENT;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return MotionSensorAvro.getClassSchema();
+    }
+
     @Override
     protected MotionSensorAvro mapToAvro(SensorEventProto event) {
         MotionSensorProto motionEvent = event.getMotionSensorEvent();
@@ -27,4 +36,13 @@ public class MotionSensorEventHandler extends BaseSensorEventHandler<MotionSenso
                 .setVoltage(motionEvent.getVoltage())
                 .build();
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void writePayload(SensorEventProto event, Encoder encoder) throws IOException {
+        MotionSensorProto motionEvent = event.getMotionSensorEvent();
+
+        encoder.writeInt(motionEvent.getLinkQuality());
+        encoder.writeBoolean(motionEvent.getMotion());
+        encoder.writeInt(motionEvent.getVoltage());
+    }
+}
@@ -1,11 +1,15 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
 import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+
 @Component
 public class SwitchSensorEventHandler extends BaseSensorEventHandler<SwitchSensorAvro> {
     public SwitchSensorEventHandler(KafkaEventProducer producer) {
@@ -17,6 +21,11 @@ public class SwitchSensorEventHandler extends BaseSensorEventHandler<SwitchSenso
         return SensorEventProto.PayloadCase.SWITCH_SENSOR_EVENT;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return SwitchSensorAvro.getClassSchema();
+    }
+
     @Override
     protected SwitchSensorAvro mapToAvro(SensorEventProto event) {
         SwitchSensorProto switchSensorEvent = event.getSwitchSensorEvent();
@@ -25,5 +34,9 @@ public class SwitchSensorEventHandler extends BaseSensorEventHandler<SwitchSenso
                 .setState(switchSensorEvent.getState())
                 .build();
     }
-}
 
+    @Override
+    protected void writePayload(SensorEventProto event, Encoder encoder) throws IOException {
+        encoder.writeBoolean(event.getSwitchSensorEvent().getState());
+    }
+}
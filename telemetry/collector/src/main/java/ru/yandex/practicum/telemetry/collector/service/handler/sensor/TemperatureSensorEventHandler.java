@@ -1,11 +1,16 @@
 package ru.yandex.practicum.telemetry.collector.service.handler.sensor;
 
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
 import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
 import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
 import ru.yandex.practicum.telemetry.collector.service.KafkaEventProducer;
 
+import java.io.IOException;
+import java.time.Instant;
+
 @Component
 public class TemperatureSensorEventHandler extends BaseSensorEventHandler<TemperatureSensorAvro> {
     public TemperatureSensorEventHandler(KafkaEventProducer producer) {
@@ -17,13 +22,41 @@ public class TemperatureSensorEventHandler extends BaseSensorEventHandler<Temper
         return SensorEventProto.PayloadCase.TEMPERATURE_SENSOR_EVENT;
     }
 
+    @Override
+    protected Schema getPayloadSchema() {
+        return TemperatureSensorAvro.getClassSchema();
+    }
+
     @Override
     protected TemperatureSensorAvro mapToAvro(SensorEventProto event) {
         TemperatureSensorProto tempEvent = event.getTemperatureSensorEvent();
 
+        // поля id, hubId и timestamp обязательны в схеме и дублируют данные события
         return TemperatureSensorAvro.newBuilder()
+                .setId(event.getId())
+                .setHubId(event.getHubId())
+                .setTimestamp(Instant.ofEpochSecond(event.getTimestamp().getSeconds(), event.getTimestamp().getNanos()))
                 .setTemperatureC(tempEvent.getTemperatureC())
                 .setTemperatureF(tempEvent.getTemperatureF())
                 .build();
     }
+
+    @Override
+    protected void writePayload(SensorEventProto event, Encoder encoder) throws IOException {
+        TemperatureSensorProto tempEvent = event.getTemperatureSensorEvent();
+
+        encoder.writeString(event.getId());
+        encoder.writeString(event.getHubId());
+        encoder.writeLong(event.getTimestamp().getSeconds() * 1000 + event.getTimestamp().getNanos() / 1_000_000);
+        encoder.writeInt(tempEvent.getTemperatureC());
+        encoder.writeInt(tempEvent.getTemperatureF());
+    }
+
+    @Override
+    protected void writePayloadV2(SensorEventProto event, Encoder encoder) throws IOException {
+        TemperatureSensorProto tempEvent = event.getTemperatureSensorEvent();
+
+        encoder.writeInt(tempEvent.getTemperatureC());
+        encoder.writeInt(tempEvent.getTemperatureF());
+    }
 }
@@ -0,0 +1,299 @@
+package ru.yandex.practicum.telemetry.collector.service.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.exception.ResourceExhaustedException;
+import ru.yandex.practicum.telemetry.collector.service.RecordFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Журнал событий на локальном диске, в который коллектор сбрасывает события, пока Kafka недоступна.
+ * Журнал состоит из сегментов фиксированного размера, отображённых в память; записи только дописываются
+ * в конец последнего сегмента, а отправленные помечаются прочитанными прямо в файле, поэтому после
+ * перезапуска продолжается отправка с первой неотправленной записи. Полностью отправленные сегменты удаляются.
+ * Записи нумеруются по порядку с момента открытия журнала, начиная с неотправленных записей, найденных на диске.
+ * <p>
+ * Формат записи: длина тела (int), состояние (byte), тело: тип топика (byte), формат значения (byte), timestamp (long),
+ * длина ключа записи (short), ключ в UTF-8, длина значения (int), значение.
+ */
+@Slf4j
+public class SpillJournal implements AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+    private static final byte PENDING = 0;
+    private static final byte CONSUMED = 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    // сбрасывать каждую запись на диск сразу при добавлении, а не только при закрытии журнала
+    private final boolean forceOnAppend;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSegmentId;
+    // меняется под монитором журнала, читается без него на каждой отправке события
+    private volatile long pending;
+    // номер следующей добавляемой записи и число отправленных записей с момента открытия
+    private long appended;
+    private long committed;
+    private boolean closed;
+
+    public SpillJournal(Path directory, int segmentSize, int maxSegments, boolean forceOnAppend) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.forceOnAppend = forceOnAppend;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + directory, e);
+        }
+        appended = pending;
+        if (pending > 0) {
+            log.info("В журнале {} найдено {} неотправленных событий", directory, pending);
+        }
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    public long size() {
+        return pending;
+    }
+
+    /**
+     * Возвращает число записей, помеченных отправленными с момента открытия журнала: все записи
+     * с номером меньше этого числа уже отправлены.
+     */
+    public synchronized long committed() {
+        return committed;
+    }
+
+    /**
+     * Дописывает событие в конец журнала.
+     *
+     * @return номер записи в журнале
+     * @throws ResourceExhaustedException если журнал заполнен
+     */
+    public synchronized long append(Entry entry) {
+        if (closed) {
+            throw new IllegalStateException("Журнал " + directory + " закрыт");
+        }
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        int bodySize = Byte.BYTES + Byte.BYTES + Long.BYTES + Short.BYTES + key.length + Integer.BYTES + entry.value().length;
+        int recordSize = HEADER_SIZE + bodySize;
+        if (recordSize > segmentSize) {
+            throw new ResourceExhaustedException("Событие с ключом " + entry.key() + " больше сегмента журнала");
+        }
+
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.writePosition + recordSize > segmentSize) {
+            tail = roll();
+        }
+
+        MappedByteBuffer buffer = tail.buffer;
+        int position = tail.writePosition;
+        buffer.put(position + Integer.BYTES, PENDING);
+        int bodyPosition = position + HEADER_SIZE;
+        buffer.put(bodyPosition, (byte) entry.topicType().ordinal());
+        buffer.put(bodyPosition + Byte.BYTES, (byte) entry.format().ordinal());
+        bodyPosition += Byte.BYTES;
+        buffer.putLong(bodyPosition + Byte.BYTES, entry.timestamp());
+        buffer.putShort(bodyPosition + Byte.BYTES + Long.BYTES, (short) key.length);
+        buffer.put(bodyPosition + Byte.BYTES + Long.BYTES + Short.BYTES, key);
+        int valuePosition = bodyPosition + Byte.BYTES + Long.BYTES + Short.BYTES + key.length;
+        buffer.putInt(valuePosition, entry.value().length);
+        buffer.put(valuePosition + Integer.BYTES, entry.value());
+        // длина пишется последней: запись без длины при восстановлении считается концом данных
+        buffer.putInt(position, bodySize);
+        if (forceOnAppend) {
+            buffer.force(position, recordSize);
+        }
+
+        tail.writePosition += recordSize;
+        pending++;
+        notifyAll();
+        return appended++;
+    }
+
+    /**
+     * Возвращает до {@code max} первых неотправленных событий, не удаляя их из журнала.
+     * Если журнал пуст, ждёт появления событий не дольше {@code timeoutMillis}.
+     */
+    public synchronized List<Entry> peek(int max, long timeoutMillis) throws InterruptedException {
+        if (pending == 0 && !closed) {
+            wait(timeoutMillis);
+        }
+        List<Entry> entries = new ArrayList<>((int) Math.min(max, pending));
+        for (Segment segment : segments) {
+            int position = segment.readPosition;
+            while (entries.size() < max && position < segment.writePosition) {
+                entries.add(read(segment.buffer, position));
+                position += HEADER_SIZE + segment.buffer.getInt(position);
+            }
+            if (entries.size() == max) {
+                break;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Помечает отправленными {@code count} первых событий журнала.
+     */
+    public synchronized void commit(int count) {
+        for (int i = 0; i < count && pending > 0; i++) {
+            Segment head = segments.peekFirst();
+            while (head.readPosition >= head.writePosition) {
+                delete(segments.pollFirst());
+                head = segments.peekFirst();
+            }
+            head.buffer.put(head.readPosition + Integer.BYTES, CONSUMED);
+            head.readPosition += HEADER_SIZE + head.buffer.getInt(head.readPosition);
+            pending--;
+            committed++;
+        }
+        // последний сегмент остаётся для записи, остальные удаляются, как только отправлены
+        while (segments.size() > 1 && segments.peekFirst().readPosition >= segments.peekFirst().writePosition) {
+            delete(segments.pollFirst());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        notifyAll();
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            closeQuietly(segment);
+        }
+        segments.clear();
+    }
+
+    private Segment roll() {
+        Segment tail = segments.peekLast();
+        if (tail != null && segments.size() == 1 && tail.readPosition >= tail.writePosition) {
+            delete(segments.pollLast());
+        } else if (segments.size() >= maxSegments) {
+            throw new ResourceExhaustedException("Журнал " + directory + " заполнен");
+        }
+        try {
+            Segment segment = open(directory.resolve(String.format("%020d%s", nextSegmentId++, SEGMENT_SUFFIX)));
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала " + directory, e);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            nextSegmentId = Math.max(nextSegmentId,
+                    Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())) + 1);
+
+            Segment segment = open(file);
+            int position = 0;
+            boolean consumed = true;
+            while (position + HEADER_SIZE <= segmentSize) {
+                int bodySize = segment.buffer.getInt(position);
+                if (bodySize <= 0 || position + HEADER_SIZE + bodySize > segmentSize) {
+                    break;
+                }
+                consumed &= segment.buffer.get(position + Integer.BYTES) == CONSUMED;
+                position += HEADER_SIZE + bodySize;
+                if (consumed) {
+                    segment.readPosition = position;
+                } else {
+                    pending++;
+                }
+            }
+            segment.writePosition = position;
+
+            if (segment.readPosition >= segment.writePosition) {
+                delete(segment);
+            } else {
+                segments.addLast(segment);
+            }
+        }
+    }
+
+    private Segment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private void delete(Segment segment) {
+        closeQuietly(segment);
+        try {
+            // отображение освобождается сборщиком мусора, на Linux файл можно удалить и до этого
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить сегмент журнала {}", segment.file, e);
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент журнала {}", segment.file, e);
+        }
+    }
+
+    private static Entry read(MappedByteBuffer buffer, int position) {
+        int bodyPosition = position + HEADER_SIZE;
+        KafkaConfig.TopicType topicType = KafkaConfig.TopicType.values()[buffer.get(bodyPosition)];
+        RecordFormat format = RecordFormat.values()[buffer.get(bodyPosition + Byte.BYTES)];
+        bodyPosition += Byte.BYTES;
+        long timestamp = buffer.getLong(bodyPosition + Byte.BYTES);
+        byte[] key = new byte[buffer.getShort(bodyPosition + Byte.BYTES + Long.BYTES)];
+        buffer.get(bodyPosition + Byte.BYTES + Long.BYTES + Short.BYTES, key);
+        int valuePosition = bodyPosition + Byte.BYTES + Long.BYTES + Short.BYTES + key.length;
+        byte[] value = new byte[buffer.getInt(valuePosition)];
+        buffer.get(valuePosition + Integer.BYTES, value);
+        return new Entry(topicType, new String(key, StandardCharsets.UTF_8), timestamp, value, format);
+    }
+
+    public record Entry(KafkaConfig.TopicType topicType, String key, long timestamp, byte[] value,
+                        RecordFormat format) {
+    }
+
+    private static class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.telemetry.collector.service.partitioning;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Партиционер, отводящий горячим хабам отдельные партиции.
+ * <p>
+ * Ключ записи - hubId, и все события хаба всегда попадают в одну партицию, поэтому снимок хаба собирает
+ * один экземпляр агрегатора. Обычный хаб попадает в одну из первых {@code partitions - hotPartitions} партиций,
+ * выбранную по кольцу согласованного хеширования: при добавлении партиций в топик переезжает лишь малая часть
+ * хабов, а не почти все, как при остатке от деления. Горячие хабы из списка занимают последние
+ * {@code hotPartitions} партиций по порядку в списке, так что каждый получает партицию без соседей,
+ * пока горячих хабов не больше, чем таких партиций.
+ * <p>
+ * Настраивается через свойства продюсера: {@value #HOT_HUBS_CONFIG} - список горячих хабов,
+ * {@value #HOT_PARTITIONS_CONFIG} и {@value #VIRTUAL_NODES_CONFIG}.
+ */
+public class HotHubPartitioner implements Partitioner {
+    public static final String HOT_HUBS_CONFIG = "collector.partitioning.hot-hubs";
+    public static final String HOT_PARTITIONS_CONFIG = "collector.partitioning.hot-partitions";
+    public static final String VIRTUAL_NODES_CONFIG = "collector.partitioning.virtual-nodes";
+
+    // порядковый номер горячего хаба в списке
+    private final Map<String, Integer> hotHubs = new HashMap<>();
+    private int hotPartitions;
+    private int virtualNodes;
+    // кольца по числу обычных партиций; топики датчиков и хабов могут отличаться числом партиций
+    private final ConcurrentMap<Integer, Ring> rings = new ConcurrentHashMap<>();
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        if (!(configs.get(HOT_HUBS_CONFIG) instanceof List<?> hubs)) {
+            throw new ConfigException(HOT_HUBS_CONFIG, configs.get(HOT_HUBS_CONFIG), "Ожидается список хабов");
+        }
+        for (Object hubId : hubs) {
+            hotHubs.putIfAbsent(String.valueOf(hubId), hotHubs.size());
+        }
+        this.hotPartitions = Integer.parseInt(String.valueOf(configs.get(HOT_PARTITIONS_CONFIG)));
+        this.virtualNodes = Math.max(1, Integer.parseInt(String.valueOf(configs.get(VIRTUAL_NODES_CONFIG))));
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int partitions = cluster.partitionsForTopic(topic).size();
+        // если партиций не хватает на отдельный диапазон, горячие и обычные хабы делят весь топик
+        int regular = hotPartitions > 0 && hotPartitions < partitions ? partitions - hotPartitions : partitions;
+
+        Integer hotIndex = hotHubs.get((String) key);
+        if (hotIndex != null) {
+            int hot = partitions - regular == 0 ? partitions : partitions - regular;
+            return partitions - hot + hotIndex % hot;
+        }
+        return rings.computeIfAbsent(regular, this::createRing).partition(Utils.murmur2(keyBytes));
+    }
+
+    private Ring createRing(int partitions) {
+        long[] points = new long[partitions * virtualNodes];
+        for (int partition = 0; partition < partitions; partition++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int hash = Utils.murmur2((partition + "-" + node).getBytes(StandardCharsets.UTF_8));
+                // хеш точки в старших битах, партиция - в младших: сортировка упорядочивает кольцо
+                points[partition * virtualNodes + node] = ((long) hash << 32) | partition;
+            }
+        }
+        Arrays.sort(points);
+        return new Ring(points);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private record Ring(long[] points) {
+        private int partition(int hash) {
+            int index = Arrays.binarySearch(points, (long) hash << 32);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // за последней точкой кольцо замыкается на первую
+            return (int) points[index == points.length ? 0 : index];
+        }
+    }
+}
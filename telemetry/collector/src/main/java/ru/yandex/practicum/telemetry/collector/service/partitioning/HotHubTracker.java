@@ -0,0 +1,90 @@
+package ru.yandex.practicum.telemetry.collector.service.partitioning;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.telemetry.collector.configuration.PartitioningConfig;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Измеряет скорость событий датчиков каждого хаба по окнам фиксированной длины и находит горячие хабы,
+ * которым ещё не отведены отдельные партиции. Такие хабы только отмечаются в метрике и журнале: партиция
+ * хаба меняется лишь через список {@code hot-hubs}, иначе его снимок собирали бы разные экземпляры агрегатора.
+ */
+@Slf4j
+public class HotHubTracker {
+    private final Set<String> knownHotHubs;
+    private final double threshold;
+    private final long windowNanos;
+    private final int maxHubs;
+    private final ConcurrentMap<String, HubRate> rates = new ConcurrentHashMap<>();
+
+    public HotHubTracker(PartitioningConfig config, MeterRegistry meterRegistry) {
+        this.knownHotHubs = Set.copyOf(config.getHotHubs());
+        this.threshold = config.getHotThreshold();
+        this.windowNanos = config.getRateWindow().toNanos();
+        this.maxHubs = config.getMaxHubs();
+
+        Gauge.builder("collector.kafka.hot.hubs", this, HotHubTracker::hotHubCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Учитывает событие датчика хаба.
+     */
+    public void record(String hubId) {
+        if (threshold <= 0 || knownHotHubs.contains(hubId)) {
+            return;
+        }
+        HubRate rate = rates.get(hubId);
+        if (rate == null) {
+            if (rates.size() >= maxHubs) {
+                // горячие хабы снова наберут скорость за одно окно
+                rates.clear();
+            }
+            rate = rates.computeIfAbsent(hubId, key -> new HubRate(key, System.nanoTime()));
+        }
+        rate.record(System.nanoTime());
+    }
+
+    private long hotHubCount() {
+        return knownHotHubs.size() + rates.values().stream().filter(rate -> rate.hot).count();
+    }
+
+    /**
+     * Окно закрывает поток, выигравший CAS по времени его начала; счётчик событий - LongAdder,
+     * чтобы потоки одного горячего хаба не соревновались за одну ячейку.
+     */
+    private final class HubRate {
+        private final String hubId;
+        private final AtomicLong windowStart;
+        private final LongAdder events = new LongAdder();
+        private volatile boolean hot;
+
+        private HubRate(String hubId, long now) {
+            this.hubId = hubId;
+            this.windowStart = new AtomicLong(now);
+        }
+
+        private void record(long now) {
+            events.increment();
+            long start = windowStart.get();
+            if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+                double perSecond = events.sumThenReset() * 1e9 / (now - start);
+                // хаб перестаёт быть горячим, только когда скорость падает вдвое ниже порога,
+                // иначе хаб на границе порога отмечался бы в журнале на каждом окне
+                boolean wasHot = hot;
+                hot = wasHot ? perSecond >= threshold / 2 : perSecond >= threshold;
+                if (hot && !wasHot) {
+                    log.warn("Хаб {} присылает {} событий датчиков в секунду; чтобы отвести ему отдельную партицию, "
+                            + "добавьте его в collector.partitioning.hot-hubs", hubId, Math.round(perSecond));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.telemetry.collector.service.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.telemetry.collector.configuration.RateLimitConfig;
+import ru.yandex.practicum.telemetry.collector.exception.ResourceExhaustedException;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничивает скорость приёма событий от каждого хаба по алгоритму token bucket.
+ * Корзины хранятся в сегментированной ConcurrentHashMap, состояние корзины обновляется через CAS без блокировок.
+ * При достижении max-hubs вытесняются корзины хабов, дольше всех не присылавших событий, поэтому
+ * активный хаб не теряет текущего ограничения из-за появления новых.
+ * <p>
+ * Отклонённые события считаются и в целом, и по хабам. Раз в report-interval top-throttled-hubs хабов
+ * с наибольшим числом отклонённых за интервал событий попадают в метрику collector.rate.limit.throttled.hub
+ * с тегом hub и в журнал, так что число рядов метрики не растёт с числом хабов.
+ */
+@Slf4j
+@Component
+public class HubRateLimiter implements AutoCloseable {
+    private final boolean enabled;
+    private final double tokensPerNano;
+    private final long burst;
+    private final int maxHubs;
+    private final int topThrottledHubs;
+    private final Duration reportInterval;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Counter throttled;
+    private final MultiGauge throttledHubs;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public HubRateLimiter(RateLimitConfig config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, System::nanoTime);
+    }
+
+    HubRateLimiter(RateLimitConfig config, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = config.isEnabled();
+        this.tokensPerNano = config.getEventsPerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.burst = config.getBurst();
+        this.maxHubs = config.getMaxHubs();
+        this.topThrottledHubs = config.getTopThrottledHubs();
+        this.reportInterval = config.getReportInterval();
+        this.nanoClock = nanoClock;
+        this.throttled = meterRegistry.counter("collector.rate.limit.throttled");
+        this.throttledHubs = MultiGauge.builder("collector.rate.limit.throttled.hub")
+                .description("Отклонённые за интервал события хабов с наибольшим их числом")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("Включено ограничение скорости приёма событий от хабов: {}", config);
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "rate-limit-report");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = reportInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::report, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @throws ResourceExhaustedException если хаб превысил допустимую скорость
+     */
+    public void acquire(String hubId) {
+        if (!enabled) {
+            return;
+        }
+        TokenBucket bucket = buckets.get(hubId);
+        if (bucket == null) {
+            if (buckets.size() >= maxHubs) {
+                evictIdle();
+            }
+            bucket = buckets.computeIfAbsent(hubId, key -> new TokenBucket(burst, nanoClock.getAsLong()));
+        }
+        if (!bucket.tryAcquire(nanoClock.getAsLong())) {
+            throttled.increment();
+            bucket.throttled.increment();
+            log.debug("Хаб {} превысил допустимую скорость", hubId);
+            throw new ResourceExhaustedException("Превышена допустимая скорость отправки событий хабом " + hubId);
+        }
+    }
+
+    /**
+     * Удаляет десятую часть корзин с самым давним пополнением, чтобы не сортировать их на каждом новом хабе.
+     * Пока вытеснение выполняет один поток, остальные добавляют корзины, не дожидаясь его.
+     */
+    private void evictIdle() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int excess = buckets.size() - maxHubs + Math.max(1, maxHubs / 10);
+            if (excess <= 0) {
+                return;
+            }
+            // время пополнения читается один раз: сортировка по меняющимся значениям нарушила бы контракт компаратора
+            List<Map.Entry<String, Long>> idle = buckets.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue().lastRefill.get()))
+                    .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                    .limit(excess)
+                    .toList();
+            for (Map.Entry<String, Long> entry : idle) {
+                buckets.remove(entry.getKey());
+            }
+            log.debug("Вытеснено {} корзин неактивных хабов", idle.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Обновляет метрику хабов с наибольшим числом отклонённых за интервал событий и пишет их в журнал.
+     */
+    void report() {
+        List<Map.Entry<String, Long>> top = buckets.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().throttled.sumThenReset()))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(topThrottledHubs)
+                .toList();
+        List<MultiGauge.Row<?>> rows = top.stream()
+                .<MultiGauge.Row<?>>map(entry -> MultiGauge.Row.of(Tags.of("hub", entry.getKey()), entry.getValue()))
+                .toList();
+        throttledHubs.register(rows, true);
+        if (!top.isEmpty()) {
+            log.warn("Больше всего событий за {} отклонено у хабов: {}", reportInterval, top);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Пополняет корзину поток, выигравший CAS по времени последнего пополнения; списание - CAS по запасу токенов.
+     */
+    private final class TokenBucket {
+        private final AtomicLong lastRefill;
+        // запас токенов в миллионных долях, чтобы дробное пополнение не терялось
+        private final AtomicLong microTokens;
+        // отклонённые события хаба с последнего отчёта
+        private final LongAdder throttled = new LongAdder();
+
+        private TokenBucket(long tokens, long now) {
+            this.lastRefill = new AtomicLong(now);
+            this.microTokens = new AtomicLong(tokens * 1_000_000);
+        }
+
+        private boolean tryAcquire(long now) {
+            long last = lastRefill.get();
+            if (now > last && lastRefill.compareAndSet(last, now)) {
+                long max = burst * 1_000_000;
+                long refill = (long) Math.min(max, (now - last) * tokensPerNano * 1_000_000);
+                microTokens.accumulateAndGet(refill, (current, added) -> Math.min(max, current + added));
+            }
+            while (true) {
+                long current = microTokens.get();
+                if (current < 1_000_000) {
+                    return false;
+                }
+                if (microTokens.compareAndSet(current, current - 1_000_000)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
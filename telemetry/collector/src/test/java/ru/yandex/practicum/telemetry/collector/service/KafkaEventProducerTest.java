@@ -0,0 +1,126 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.kafka.converter.SchemaVersion;
+import ru.yandex.practicum.telemetry.collector.configuration.AdaptiveBatchingConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.BatchingConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.PartitioningConfig;
+import ru.yandex.practicum.telemetry.collector.configuration.SpillJournalConfig;
+import ru.yandex.practicum.telemetry.collector.service.journal.SpillJournal;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет работу с журналом при недоступной Kafka: продюсер подключается к закрытому порту,
+ * поэтому любая отправка завершается ошибкой ожидания метаданных.
+ */
+class KafkaEventProducerTest {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final String HUB_ID = "hub-1";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void afterKafkaSendFailureIsReturnedToClientInsteadOfSpilling() {
+        try (KafkaEventProducer producer = producer(KafkaConfig.AckMode.AFTER_KAFKA)) {
+            CompletableFuture<Void> result = producer.send(value("a"), HUB_ID, 1L,
+                    KafkaConfig.TopicType.SENSORS_EVENTS);
+
+            assertThat(result).failsWithin(Duration.ofSeconds(10));
+            assertThat(producer.journal.isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void afterKafkaSpilledEventsAreNotAcknowledgedBeforeDelivery() {
+        appendToJournal("a");
+
+        CompletableFuture<Void> second;
+        CompletableFuture<Void> third;
+        try (KafkaEventProducer producer = producer(KafkaConfig.AckMode.AFTER_KAFKA)) {
+            // в журнале есть неотправленное событие, поэтому новые события пишутся за ним
+            second = producer.send(value("b"), HUB_ID, 2L, KafkaConfig.TopicType.SENSORS_EVENTS);
+            third = producer.send(value("c"), HUB_ID, 3L, KafkaConfig.TopicType.SENSORS_EVENTS);
+
+            assertThat(second).isNotDone();
+            assertThat(third).isNotDone();
+            assertThat(producer.journal.size()).isEqualTo(3);
+        }
+
+        assertThat(second).isCompletedExceptionally();
+        assertThat(third).isCompletedExceptionally();
+        assertThat(journalValues()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void immediateSendsFollowFailedEventThroughJournal() throws InterruptedException {
+        try (KafkaEventProducer producer = producer(KafkaConfig.AckMode.IMMEDIATE)) {
+            assertThat(producer.send(value("a"), HUB_ID, 1L, KafkaConfig.TopicType.SENSORS_EVENTS)).isDone();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (producer.journal.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(producer.journal.isEmpty()).isFalse();
+
+            producer.send(value("b"), HUB_ID, 2L, KafkaConfig.TopicType.SENSORS_EVENTS);
+            producer.send(value("c"), HUB_ID, 3L, KafkaConfig.TopicType.SENSORS_EVENTS);
+        }
+
+        assertThat(journalValues()).containsExactly("a", "b", "c");
+    }
+
+    private KafkaEventProducer producer(KafkaConfig.AckMode ackMode) {
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:1");
+        properties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 200);
+        KafkaConfig kafkaConfig = new KafkaConfig();
+        kafkaConfig.setProducer(new KafkaConfig.ProducerConfig(properties,
+                Map.of("sensors-events", "telemetry.sensors.v1", "hubs-events", "telemetry.hubs.v1"),
+                ackMode, 100, KafkaConfig.ValueEncoding.RECORD, 1, SchemaVersion.V1));
+
+        SpillJournalConfig spillConfig = new SpillJournalConfig();
+        spillConfig.setEnabled(true);
+        spillConfig.setDirectory(directory.toString());
+        spillConfig.setSegmentSize(DataSize.ofBytes(SEGMENT_SIZE));
+        spillConfig.setRetryBackoff(Duration.ofMillis(50));
+
+        return new KafkaEventProducer(kafkaConfig, spillConfig, new BatchingConfig(), new PartitioningConfig(),
+                new AdaptiveBatchingConfig(), new SimpleMeterRegistry());
+    }
+
+    private void appendToJournal(String value) {
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            journal.append(new SpillJournal.Entry(KafkaConfig.TopicType.SENSORS_EVENTS, HUB_ID, 0L, value(value),
+                    RecordFormat.AVRO));
+        }
+    }
+
+    private List<String> journalValues() {
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, false)) {
+            return journal.peek(100, 1).stream()
+                    .map(entry -> new String(entry.value(), StandardCharsets.UTF_8))
+                    .toList();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] value(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
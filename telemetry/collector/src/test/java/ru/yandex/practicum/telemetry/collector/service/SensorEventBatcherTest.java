@@ -0,0 +1,88 @@
+package ru.yandex.practicum.telemetry.collector.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.telemetry.collector.configuration.BatchingConfig;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorEventBatcherTest {
+    private static final String HUB_ID = "hub-1";
+
+    @Test
+    void fullBatchIsNotSentBeforeExpiredOne() throws InterruptedException {
+        List<Long> sent = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch expiredInSender = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (SensorEventBatcher batcher = new SensorEventBatcher(config(Duration.ofMillis(1), 3),
+                (value, hubId, timestamp) -> {
+                    sent.add(timestamp);
+                    threads.add(Thread.currentThread().getName());
+                    if (timestamp == 1L) {
+                        // первая пачка закрылась по интервалу и задерживается при отправке
+                        expiredInSender.countDown();
+                        await(release);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                })) {
+            CompletableFuture<Void> expired = batcher.add(HUB_ID, new byte[]{1}, 1L);
+            assertThat(expiredInSender.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // следующая пачка хаба заполняется, пока предыдущая ещё отправляется
+            batcher.add(HUB_ID, new byte[]{2}, 2L);
+            batcher.add(HUB_ID, new byte[]{3}, 3L);
+            CompletableFuture<Void> full = batcher.add(HUB_ID, new byte[]{4}, 4L);
+
+            Thread.sleep(100);
+            assertThat(sent).containsExactly(1L);
+
+            release.countDown();
+            assertThat(full).succeedsWithin(Duration.ofSeconds(10));
+            assertThat(expired).isDone();
+        }
+
+        assertThat(sent).containsExactly(1L, 2L);
+        assertThat(threads).containsOnly("sensor-event-batcher");
+    }
+
+    @Test
+    void closeSendsPendingBatches() {
+        List<Long> sent = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> result;
+        try (SensorEventBatcher batcher = new SensorEventBatcher(config(Duration.ofMinutes(1), 100),
+                (value, hubId, timestamp) -> {
+                    sent.add(timestamp);
+                    return CompletableFuture.completedFuture(null);
+                })) {
+            result = batcher.add(HUB_ID, new byte[]{1}, 1L);
+            assertThat(result).isNotDone();
+        }
+
+        assertThat(result).isDone();
+        assertThat(sent).containsExactly(1L);
+    }
+
+    private static BatchingConfig config(Duration linger, int maxEvents) {
+        BatchingConfig config = new BatchingConfig();
+        config.setEnabled(true);
+        config.setLinger(linger);
+        config.setMaxEvents(maxEvents);
+        return config;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.telemetry.collector.service.filter;
+
+import com.google.protobuf.Timestamp;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.SwitchSensorProto;
+import ru.yandex.practicum.telemetry.collector.configuration.DuplicateDetectionConfig;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateEventFilterTest {
+    private static final String HUB_ID = "hub-1";
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void rejectsRepeatOfSentEvent() {
+        DuplicateEventFilter filter = filter(1000);
+        SensorEventProto event = event("switch-1", 1);
+
+        assertThat(filter.accept(event)).isTrue();
+        filter.onSent(event);
+
+        assertThat(filter.accept(event)).isFalse();
+        // другое время события - не повтор
+        assertThat(filter.accept(event("switch-1", 2))).isTrue();
+    }
+
+    @Test
+    void acceptedButUnsentEventIsNotRemembered() {
+        DuplicateEventFilter filter = filter(1000);
+        SensorEventProto event = event("switch-1", 1);
+
+        assertThat(filter.accept(event)).isTrue();
+        assertThat(filter.accept(event)).isTrue();
+    }
+
+    @Test
+    void remembersEventUntilItsIntervalLeavesWindow() {
+        DuplicateEventFilter filter = filter(1000);
+        SensorEventProto event = event("switch-1", 1);
+        filter.onSent(event);
+
+        // событие в прошлых интервалах окна распознаётся, хотя новые события пишутся в следующие
+        for (int i = 1; i < 5; i++) {
+            now.addAndGet(100);
+            filter.onSent(event("switch-2", i));
+            assertThat(filter.accept(event)).isFalse();
+        }
+
+        // интервал события вышел из окна
+        now.addAndGet(100);
+        assertThat(filter.accept(event)).isTrue();
+    }
+
+    @Test
+    void reusedIntervalStartsEmpty() {
+        DuplicateEventFilter filter = filter(1000);
+        SensorEventProto event = event("switch-1", 1);
+        filter.onSent(event);
+
+        // через пять интервалов ячейка окна занимается заново
+        now.addAndGet(500);
+        filter.onSent(event("switch-2", 1));
+
+        assertThat(filter.accept(event)).isTrue();
+        assertThat(filter.accept(event("switch-2", 1))).isFalse();
+    }
+
+    @Test
+    void fullIntervalStopsRememberingEvents() {
+        DuplicateEventFilter filter = filter(2);
+        for (int i = 1; i <= 3; i++) {
+            filter.onSent(event("switch-" + i, 1));
+        }
+
+        assertThat(filter.accept(event("switch-1", 1))).isFalse();
+        assertThat(filter.accept(event("switch-2", 1))).isFalse();
+        // третье событие не поместилось в интервал, его повтор пропускается
+        assertThat(filter.accept(event("switch-3", 1))).isTrue();
+
+        // в следующем интервале место снова есть
+        now.addAndGet(100);
+        filter.onSent(event("switch-3", 1));
+        assertThat(filter.accept(event("switch-3", 1))).isFalse();
+    }
+
+    private DuplicateEventFilter filter(int maxEntriesPerBucket) {
+        DuplicateDetectionConfig config = new DuplicateDetectionConfig();
+        config.setEnabled(true);
+        // окно 500 мс из пяти интервалов по 100 мс
+        config.setWindow(Duration.ofMillis(500));
+        config.setBuckets(5);
+        config.setMaxEntriesPerBucket(maxEntriesPerBucket);
+        return new DuplicateEventFilter(config, new SimpleMeterRegistry(), now::get);
+    }
+
+    private static SensorEventProto event(String id, long seconds) {
+        return SensorEventProto.newBuilder()
+                .setId(id)
+                .setHubId(HUB_ID)
+                .setTimestamp(Timestamp.newBuilder().setSeconds(seconds))
+                .setSwitchSensorEvent(SwitchSensorProto.newBuilder().setState(true))
+                .build();
+    }
+}
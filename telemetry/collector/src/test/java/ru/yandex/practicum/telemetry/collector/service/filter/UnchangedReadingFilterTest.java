@@ -0,0 +1,67 @@
+package ru.yandex.practicum.telemetry.collector.service.filter;
+
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+import ru.yandex.practicum.grpc.telemetry.event.TemperatureSensorProto;
+import ru.yandex.practicum.telemetry.collector.configuration.DeduplicationConfig;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnchangedReadingFilterTest {
+    private static final String HUB_ID = "hub-1";
+
+    private final UnchangedReadingFilter filter = new UnchangedReadingFilter(config(Duration.ofSeconds(60)));
+
+    @Test
+    void dropsUnchangedReadingOnlyAfterItWasSent() {
+        SensorEventProto first = event("sensor-1", 20, 0);
+        assertThat(filter.accept(first)).isTrue();
+        assertThat(filter.accept(event("sensor-1", 20, 1))).isTrue();
+
+        filter.onSent(first);
+
+        assertThat(filter.accept(event("sensor-1", 20, 1))).isFalse();
+        assertThat(filter.accept(event("sensor-1", 21, 1))).isTrue();
+        // показания другого датчика хранятся отдельно
+        assertThat(filter.accept(event("sensor-2", 20, 1))).isTrue();
+    }
+
+    @Test
+    void sendsUnchangedReadingAfterMaxSilence() {
+        filter.onSent(event("sensor-1", 20, 0));
+
+        assertThat(filter.accept(event("sensor-1", 20, 59))).isFalse();
+        assertThat(filter.accept(event("sensor-1", 20, 60))).isTrue();
+    }
+
+    @Test
+    void olderSentReadingDoesNotReplaceNewer() {
+        filter.onSent(event("sensor-1", 21, 10));
+        // подтверждение более старого события пришло позже
+        filter.onSent(event("sensor-1", 20, 5));
+
+        assertThat(filter.accept(event("sensor-1", 21, 11))).isFalse();
+        assertThat(filter.accept(event("sensor-1", 20, 11))).isTrue();
+    }
+
+    private static DeduplicationConfig config(Duration maxSilence) {
+        DeduplicationConfig config = new DeduplicationConfig();
+        config.setEnabled(true);
+        config.setMaxSilence(maxSilence);
+        return config;
+    }
+
+    private static SensorEventProto event(String id, int temperature, long seconds) {
+        return SensorEventProto.newBuilder()
+                .setId(id)
+                .setHubId(HUB_ID)
+                .setTimestamp(Timestamp.newBuilder().setSeconds(seconds))
+                .setTemperatureSensorEvent(TemperatureSensorProto.newBuilder()
+                        .setTemperatureC(temperature)
+                        .setTemperatureF(temperature * 9 / 5 + 32))
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.telemetry.collector.service.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.telemetry.collector.configuration.KafkaConfig;
+import ru.yandex.practicum.telemetry.collector.service.RecordFormat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpillJournalTest {
+    // помещается 8 записей по 40 байт, поэтому записи тестов занимают несколько сегментов
+    private static final int SEGMENT_SIZE = 320;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversPendingEntriesInOrderAfterReopen() throws InterruptedException {
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(entry(i));
+            }
+        }
+
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            assertThat(journal.size()).isEqualTo(20);
+            assertValues(journal.peek(100, 0), 0, 20);
+        }
+    }
+
+    @Test
+    void doesNotReplayCommittedEntriesAfterReopen() throws InterruptedException {
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, false)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(entry(i));
+            }
+            assertValues(journal.peek(8, 0), 0, 8);
+            journal.commit(8);
+            assertThat(journal.committed()).isEqualTo(8);
+        }
+
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, false)) {
+            assertThat(journal.size()).isEqualTo(12);
+            assertValues(journal.peek(100, 0), 8, 20);
+        }
+    }
+
+    @Test
+    void keepsAppendOrderAfterRecoveredEntries() throws InterruptedException {
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(entry(i));
+            }
+        }
+
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            // новые записи нумеруются после найденных на диске и отправляются за ними
+            assertThat(journal.append(entry(5))).isEqualTo(5);
+            assertThat(journal.append(entry(6))).isEqualTo(6);
+            journal.commit(3);
+            assertThat(journal.committed()).isEqualTo(3);
+            assertValues(journal.peek(100, 0), 3, 7);
+        }
+    }
+
+    @Test
+    void keepsEntryFields() throws InterruptedException {
+        SpillJournal.Entry entry = new SpillJournal.Entry(KafkaConfig.TopicType.HUBS_EVENTS, "hub-1:sensor-1",
+                1_700_000_000_000L, new byte[]{1, 2, 3}, RecordFormat.PROTOBUF);
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            journal.append(entry);
+        }
+
+        try (SpillJournal journal = new SpillJournal(directory, SEGMENT_SIZE, 16, true)) {
+            SpillJournal.Entry recovered = journal.peek(1, 0).get(0);
+            assertThat(recovered.topicType()).isEqualTo(entry.topicType());
+            assertThat(recovered.key()).isEqualTo(entry.key());
+            assertThat(recovered.timestamp()).isEqualTo(entry.timestamp());
+            assertThat(recovered.value()).isEqualTo(entry.value());
+            assertThat(recovered.format()).isEqualTo(entry.format());
+        }
+    }
+
+    private static SpillJournal.Entry entry(int index) {
+        return new SpillJournal.Entry(KafkaConfig.TopicType.SENSORS_EVENTS, "hub-1", index,
+                ("event-" + index).getBytes(StandardCharsets.UTF_8), RecordFormat.AVRO);
+    }
+
+    private static void assertValues(List<SpillJournal.Entry> entries, int from, int to) {
+        assertThat(entries).extracting(entry -> new String(entry.value(), StandardCharsets.UTF_8))
+                .containsExactlyElementsOf(IntStream.range(from, to)
+                        .mapToObj(i -> "event-" + i)
+                        .toList());
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.telemetry.collector.service.partitioning;
+
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotHubPartitionerTest {
+    private static final String TOPIC = "telemetry.sensors.v1";
+    private static final int HUBS = 10_000;
+
+    private final HotHubPartitioner partitioner = partitioner(List.of("hot-1", "hot-2"), 2);
+
+    @Test
+    void hotHubsGetOwnPartitionsAtEndOfTopic() {
+        Cluster cluster = cluster(12);
+
+        assertThat(partition("hot-1", cluster)).isEqualTo(10);
+        assertThat(partition("hot-2", cluster)).isEqualTo(11);
+        for (int i = 0; i < HUBS; i++) {
+            assertThat(partition("hub-" + i, cluster)).isBetween(0, 9);
+        }
+    }
+
+    @Test
+    void sameHubAlwaysGetsSamePartition() {
+        Cluster cluster = cluster(12);
+        HotHubPartitioner other = partitioner(List.of("hot-1", "hot-2"), 2);
+
+        for (int i = 0; i < 1000; i++) {
+            String hubId = "hub-" + i;
+            assertThat(partition(hubId, cluster)).isEqualTo(partition(other, hubId, cluster));
+        }
+    }
+
+    @Test
+    void addingPartitionsMovesFewRegularHubs() {
+        Map<String, Integer> before = assignment(cluster(12));
+        Map<String, Integer> after = assignment(cluster(14));
+
+        long moved = before.keySet().stream().filter(hubId -> !before.get(hubId).equals(after.get(hubId))).count();
+        // обычных партиций стало 12 вместо 10: в новые должна переехать примерно шестая часть хабов,
+        // а остаток от деления переместил бы почти все
+        assertThat(moved).isLessThan(HUBS / 4);
+        // хабы переезжают только в добавленные партиции, а не между старыми
+        before.forEach((hubId, partition) -> {
+            if (!partition.equals(after.get(hubId))) {
+                assertThat(after.get(hubId)).isIn(10, 11);
+            }
+        });
+    }
+
+    @Test
+    void hotHubsShareWholeTopicWhenPartitionsAreTooFew() {
+        Cluster cluster = cluster(2);
+
+        assertThat(Set.of(partition("hot-1", cluster), partition("hot-2", cluster))).containsExactlyInAnyOrder(0, 1);
+        assertThat(partition("hub-1", cluster)).isBetween(0, 1);
+    }
+
+    private Map<String, Integer> assignment(Cluster cluster) {
+        Map<String, Integer> assignment = new HashMap<>();
+        for (int i = 0; i < HUBS; i++) {
+            assignment.put("hub-" + i, partition("hub-" + i, cluster));
+        }
+        return assignment;
+    }
+
+    private int partition(String hubId, Cluster cluster) {
+        return partition(partitioner, hubId, cluster);
+    }
+
+    private static int partition(HotHubPartitioner partitioner, String hubId, Cluster cluster) {
+        return partitioner.partition(TOPIC, hubId, hubId.getBytes(StandardCharsets.UTF_8), null, null, cluster);
+    }
+
+    private static HotHubPartitioner partitioner(List<String> hotHubs, int hotPartitions) {
+        HotHubPartitioner partitioner = new HotHubPartitioner();
+        partitioner.configure(Map.of(
+                HotHubPartitioner.HOT_HUBS_CONFIG, hotHubs,
+                HotHubPartitioner.HOT_PARTITIONS_CONFIG, hotPartitions,
+                HotHubPartitioner.VIRTUAL_NODES_CONFIG, 64
+        ));
+        return partitioner;
+    }
+
+    private static Cluster cluster(int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            infos.add(new PartitionInfo(TOPIC, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("cluster", List.of(node), infos, Set.of(), Set.of());
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.telemetry.collector.service.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.telemetry.collector.configuration.RateLimitConfig;
+import ru.yandex.practicum.telemetry.collector.exception.ResourceExhaustedException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HubRateLimiterTest {
+    private static final String HUB_ID = "hub-1";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void allowsBurstThenThrottles() {
+        try (HubRateLimiter limiter = limiter(10, 3, 100)) {
+            for (int i = 0; i < 3; i++) {
+                limiter.acquire(HUB_ID);
+            }
+
+            assertThatThrownBy(() -> limiter.acquire(HUB_ID)).isInstanceOf(ResourceExhaustedException.class);
+            // другой хаб расходует свою корзину
+            limiter.acquire("hub-2");
+        }
+    }
+
+    @Test
+    void refillsAtConfiguredRateUpToBurst() {
+        try (HubRateLimiter limiter = limiter(10, 3, 100)) {
+            for (int i = 0; i < 3; i++) {
+                limiter.acquire(HUB_ID);
+            }
+
+            // 10 событий в секунду - один токен за 100 мс
+            advance(150);
+            limiter.acquire(HUB_ID);
+            assertThatThrownBy(() -> limiter.acquire(HUB_ID)).isInstanceOf(ResourceExhaustedException.class);
+
+            // за долгий простой запас не превышает burst
+            advance(60_000);
+            for (int i = 0; i < 3; i++) {
+                limiter.acquire(HUB_ID);
+            }
+            assertThatThrownBy(() -> limiter.acquire(HUB_ID)).isInstanceOf(ResourceExhaustedException.class);
+        }
+    }
+
+    @Test
+    void evictsLongestIdleHubsWhenFull() {
+        try (HubRateLimiter limiter = limiter(10, 1, 10)) {
+            for (int i = 0; i < 10; i++) {
+                limiter.acquire("hub-" + i);
+                advance(1);
+            }
+            // hub-9 активен и остаётся ограниченным
+            assertThatThrownBy(() -> limiter.acquire("hub-9")).isInstanceOf(ResourceExhaustedException.class);
+
+            limiter.acquire("hub-10");
+
+            // корзина hub-0 вытеснена, и он получает новую с полным запасом
+            limiter.acquire("hub-0");
+            assertThatThrownBy(() -> limiter.acquire("hub-9")).isInstanceOf(ResourceExhaustedException.class);
+        }
+    }
+
+    @Test
+    void reportsHubsWithMostThrottledEvents() {
+        RateLimitConfig config = config(10, 1, 100);
+        config.setTopThrottledHubs(2);
+        try (HubRateLimiter limiter = new HubRateLimiter(config, meterRegistry, now::get)) {
+            throttle(limiter, "hub-1", 3);
+            throttle(limiter, "hub-2", 1);
+            throttle(limiter, "hub-3", 2);
+
+            limiter.report();
+
+            assertThat(throttledGauge("hub-1")).isEqualTo(3);
+            assertThat(throttledGauge("hub-3")).isEqualTo(2);
+            assertThat(meterRegistry.find("collector.rate.limit.throttled.hub").tag("hub", "hub-2").gauge())
+                    .isNull();
+
+            // счётчики обнуляются с каждым отчётом
+            limiter.report();
+            assertThat(meterRegistry.find("collector.rate.limit.throttled.hub").gauges()).isEmpty();
+        }
+    }
+
+    private void throttle(HubRateLimiter limiter, String hubId, int times) {
+        limiter.acquire(hubId);
+        for (int i = 0; i < times; i++) {
+            assertThatThrownBy(() -> limiter.acquire(hubId)).isInstanceOf(ResourceExhaustedException.class);
+        }
+    }
+
+    private double throttledGauge(String hubId) {
+        Gauge gauge = meterRegistry.find("collector.rate.limit.throttled.hub").tag("hub", hubId).gauge();
+        assertThat(gauge).isNotNull();
+        return gauge.value();
+    }
+
+    private HubRateLimiter limiter(double eventsPerSecond, int burst, int maxHubs) {
+        return new HubRateLimiter(config(eventsPerSecond, burst, maxHubs), meterRegistry, now::get);
+    }
+
+    private static RateLimitConfig config(double eventsPerSecond, int burst, int maxHubs) {
+        RateLimitConfig config = new RateLimitConfig();
+        config.setEnabled(true);
+        config.setEventsPerSecond(eventsPerSecond);
+        config.setBurst(burst);
+        config.setMaxHubs(maxHubs);
+        return config;
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
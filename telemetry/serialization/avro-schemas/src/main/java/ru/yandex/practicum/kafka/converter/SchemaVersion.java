@@ -0,0 +1,8 @@
+package ru.yandex.practicum.kafka.converter;
+
+public enum SchemaVersion {
+    // схемы пакета ru.yandex.practicum.kafka.telemetry.event
+    V1,
+    // компактные схемы пакета ru.yandex.practicum.kafka.telemetry.event.v2
+    V2
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.kafka.converter;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventBatchAvro;
+import ru.yandex.practicum.kafka.telemetry.event.TemperatureSensorAvro;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Преобразование событий датчиков между схемами v1 и v2. Показания всех датчиков, кроме датчика
+ * температуры, в обеих версиях описаны одними и теми же записями и передаются без копирования.
+ */
+public final class SensorEventConverter {
+
+    private SensorEventConverter() {
+    }
+
+    public static ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro toV2(SensorEventAvro event) {
+        return ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro.newBuilder()
+                .setId(event.getId())
+                .setHubId(event.getHubId())
+                .setTimestamp(event.getTimestamp())
+                .setPayload(payloadToV2(event.getPayload()))
+                .build();
+    }
+
+    public static SensorEventAvro toV1(ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro event) {
+        return SensorEventAvro.newBuilder()
+                .setId(event.getId())
+                .setHubId(event.getHubId())
+                .setTimestamp(event.getTimestamp())
+                .setPayload(payloadToV1(event.getPayload(), event.getId(), event.getHubId(), event.getTimestamp()))
+                .build();
+    }
+
+    public static SensorEventBatchAvro toV1(ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventBatchAvro batch) {
+        List<SensorEventAvro> events = new ArrayList<>(batch.getEvents().size());
+        for (ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro event : batch.getEvents()) {
+            events.add(toV1(event));
+        }
+        return new SensorEventBatchAvro(batch.getHubId(), events);
+    }
+
+    static Object payloadToV2(Object payload) {
+        if (payload instanceof TemperatureSensorAvro temperature) {
+            return new ru.yandex.practicum.kafka.telemetry.event.v2.TemperatureSensorAvro(
+                    temperature.getTemperatureC(), temperature.getTemperatureF());
+        }
+        return payload;
+    }
+
+    /**
+     * Восстанавливает показания v1; поля, которых нет в v2, берутся из конверта события или снимка.
+     */
+    static Object payloadToV1(Object payload, String id, String hubId, Instant timestamp) {
+        if (payload instanceof ru.yandex.practicum.kafka.telemetry.event.v2.TemperatureSensorAvro temperature) {
+            return new TemperatureSensorAvro(id, hubId, timestamp,
+                    temperature.getTemperatureC(), temperature.getTemperatureF());
+        }
+        return payload;
+    }
+}
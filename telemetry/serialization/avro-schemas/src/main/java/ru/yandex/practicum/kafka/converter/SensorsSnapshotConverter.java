@@ -0,0 +1,44 @@
+package ru.yandex.practicum.kafka.converter;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Преобразование снимков состояния между схемами v1 и v2. В v2 время показаний хранится
+ * как смещение от времени снимка, которое короче полной метки времени в кодировке Avro.
+ */
+public final class SensorsSnapshotConverter {
+
+    private SensorsSnapshotConverter() {
+    }
+
+    public static ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro toV2(SensorsSnapshotAvro snapshot) {
+        long snapshotMillis = snapshot.getTimestamp().toEpochMilli();
+        Map<String, ru.yandex.practicum.kafka.telemetry.event.v2.SensorStateAvro> states =
+                HashMap.newHashMap(snapshot.getSensorsState().size());
+        for (Map.Entry<String, SensorStateAvro> entry : snapshot.getSensorsState().entrySet()) {
+            SensorStateAvro state = entry.getValue();
+            states.put(entry.getKey(), new ru.yandex.practicum.kafka.telemetry.event.v2.SensorStateAvro(
+                    snapshotMillis - state.getTimestamp().toEpochMilli(),
+                    SensorEventConverter.payloadToV2(state.getData())));
+        }
+        return new ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro(
+                snapshot.getHubId(), snapshot.getTimestamp(), states);
+    }
+
+    public static SensorsSnapshotAvro toV1(ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro snapshot) {
+        long snapshotMillis = snapshot.getTimestamp().toEpochMilli();
+        Map<String, SensorStateAvro> states = HashMap.newHashMap(snapshot.getSensorsState().size());
+        for (Map.Entry<String, ru.yandex.practicum.kafka.telemetry.event.v2.SensorStateAvro> entry
+                : snapshot.getSensorsState().entrySet()) {
+            Instant timestamp = Instant.ofEpochMilli(snapshotMillis - entry.getValue().getTimestampDelta());
+            states.put(entry.getKey(), new SensorStateAvro(timestamp, SensorEventConverter.payloadToV1(
+                    entry.getValue().getData(), entry.getKey(), snapshot.getHubId(), timestamp)));
+        }
+        return new SensorsSnapshotAvro(snapshot.getHubId(), snapshot.getTimestamp(), states);
+    }
+}
@@ -11,6 +11,9 @@ import org.apache.kafka.common.serialization.Deserializer;
 
 public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deserializer<T> {
 
+    // декодер не зависит от схемы и переинициализируется на каждый вызов, поэтому закреплён за потоком
+    private static final ThreadLocal<BinaryDecoder> DECODERS = new ThreadLocal<>();
+
     private final DecoderFactory decoderFactory;
     private final DatumReader<T> reader;
 
@@ -25,14 +28,26 @@ public class BaseAvroDeserializer<T extends SpecificRecordBase> implements Deser
 
     @Override
     public T deserialize(String topic, byte[] data) {
+        return deserialize(topic, data, null);
+    }
+
+    /**
+     * Десериализует данные в переданный экземпляр, переиспользуя его вложенные записи и коллекции.
+     * Подходит для записей, которые не покидают цикл обработки: при следующем вызове
+     * содержимое {@code reuse} будет перезаписано.
+     *
+     * @param reuse экземпляр для заполнения или {@code null}, чтобы создать новый
+     */
+    public T deserialize(String topic, byte[] data, T reuse) {
         if (data == null) {
             return null;
         }
         try {
-            BinaryDecoder decoder = decoderFactory.binaryDecoder(data, null);
-            return reader.read(null, decoder);
+            BinaryDecoder decoder = decoderFactory.binaryDecoder(data, DECODERS.get());
+            DECODERS.set(decoder);
+            return reader.read(reuse, decoder);
         } catch (Exception e) {
             throw new SerializationException("Ошибка десериализации данных из топика " + topic, e);
         }
     }
-}
\ No newline at end of file
+}
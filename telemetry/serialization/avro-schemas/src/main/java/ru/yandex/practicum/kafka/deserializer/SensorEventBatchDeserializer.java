@@ -0,0 +1,12 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventBatchAvro;
+
+public class SensorEventBatchDeserializer extends BaseAvroDeserializer<SensorEventBatchAvro> {
+    // заголовок записи в топике событий датчиков, значение которой - SensorEventBatchAvro, а не SensorEventAvro
+    public static final String BATCH_HEADER = "sensor-event-batch";
+
+    public SensorEventBatchDeserializer() {
+        super(SensorEventBatchAvro.getClassSchema());
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.yandex.practicum.kafka.converter.SensorEventConverter;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventBatchAvro;
+
+/**
+ * Читает пачку событий датчиков в схеме v2 и возвращает её в схеме v1.
+ */
+public class SensorEventBatchV2Deserializer implements Deserializer<SensorEventBatchAvro> {
+    private final BaseAvroDeserializer<ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventBatchAvro> delegate =
+            new BaseAvroDeserializer<>(ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventBatchAvro.getClassSchema());
+
+    @Override
+    public SensorEventBatchAvro deserialize(String topic, byte[] data) {
+        ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventBatchAvro batch = delegate.deserialize(topic, data);
+        return batch == null ? null : SensorEventConverter.toV1(batch);
+    }
+}
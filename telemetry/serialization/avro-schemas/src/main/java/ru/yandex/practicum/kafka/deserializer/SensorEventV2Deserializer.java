@@ -0,0 +1,19 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.yandex.practicum.kafka.converter.SensorEventConverter;
+import ru.yandex.practicum.kafka.telemetry.event.SensorEventAvro;
+
+/**
+ * Читает событие датчика в схеме v2 и возвращает его в схеме v1.
+ */
+public class SensorEventV2Deserializer implements Deserializer<SensorEventAvro> {
+    private final BaseAvroDeserializer<ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro> delegate =
+            new BaseAvroDeserializer<>(ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro.getClassSchema());
+
+    @Override
+    public SensorEventAvro deserialize(String topic, byte[] data) {
+        ru.yandex.practicum.kafka.telemetry.event.v2.SensorEventAvro event = delegate.deserialize(topic, data);
+        return event == null ? null : SensorEventConverter.toV1(event);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+
+public class SensorStateDeserializer extends BaseAvroDeserializer<SensorStateAvro> {
+
+    public SensorStateDeserializer() {
+        super(SensorStateAvro.getClassSchema());
+    }
+}
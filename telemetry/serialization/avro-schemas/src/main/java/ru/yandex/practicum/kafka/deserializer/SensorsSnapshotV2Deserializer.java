@@ -0,0 +1,19 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.yandex.practicum.kafka.converter.SensorsSnapshotConverter;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+/**
+ * Читает снимок состояния в схеме v2 и возвращает его в схеме v1.
+ */
+public class SensorsSnapshotV2Deserializer implements Deserializer<SensorsSnapshotAvro> {
+    private final BaseAvroDeserializer<ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro> delegate =
+            new BaseAvroDeserializer<>(ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro.getClassSchema());
+
+    @Override
+    public SensorsSnapshotAvro deserialize(String topic, byte[] data) {
+        ru.yandex.practicum.kafka.telemetry.event.v2.SensorsSnapshotAvro snapshot = delegate.deserialize(topic, data);
+        return snapshot == null ? null : SensorsSnapshotConverter.toV1(snapshot);
+    }
+}
@@ -0,0 +1,309 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.kafka.common.errors.SerializationException;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Чтение снимка SensorsSnapshotAvro без полной десериализации. При {@link #wrap} разбирается только
+ * заголовок и строится индекс ключей карты состояний по исходным байтам; отдельное состояние датчика
+ * декодируется при первом обращении к нему. Ключи ищутся по хеш-таблице с открытой адресацией: идентификатор
+ * датчика кодируется в UTF-8 в переиспользуемый буфер и сравнивается с байтами снимка без выделения памяти.
+ * Экземпляр переиспользуется для следующих снимков и, как и десериализатор, не предназначен для использования
+ * из нескольких потоков.
+ */
+public class SensorsSnapshotView {
+    private static final Schema STATE_SCHEMA = SensorStateAvro.getClassSchema();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final DatumReader<SensorStateAvro> stateReader = new SpecificDatumReader<>(STATE_SCHEMA);
+    private BinaryDecoder decoder;
+
+    private byte[] data;
+    private int position;
+    private String topic;
+    private String hubId;
+    private long timestamp;
+
+    // индекс карты: смещение и длина ключа, его хеш и смещение значения; длина значения - до следующего ключа
+    private int size;
+    private int[] keyOffsets = new int[INITIAL_CAPACITY];
+    private int[] keyLengths = new int[INITIAL_CAPACITY];
+    private int[] keyHashes = new int[INITIAL_CAPACITY];
+    private int[] valueOffsets = new int[INITIAL_CAPACITY];
+    private int[] valueEnds = new int[INITIAL_CAPACITY];
+    private SensorStateAvro[] states = new SensorStateAvro[INITIAL_CAPACITY];
+    // хеш-таблица: номер записи индекса плюс один, 0 - пустая ячейка; заполняется не более чем наполовину
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int tableMask;
+    // идентификатор искомого датчика в UTF-8
+    private byte[] keyBuffer = new byte[64];
+
+    /**
+     * Привязывает представление к бинарному снимку. Массив не копируется и не должен меняться,
+     * пока представление используется.
+     */
+    public SensorsSnapshotView wrap(String topic, byte[] data) {
+        this.topic = topic;
+        this.data = data;
+        this.position = 0;
+        Arrays.fill(states, 0, size, null);
+        this.size = 0;
+        try {
+            hubId = readString();
+            timestamp = readLong();
+            for (long count = readLong(); count != 0; count = readLong()) {
+                if (count < 0) {
+                    // блок с известным размером в байтах
+                    count = -count;
+                    readLong();
+                }
+                for (long i = 0; i < count; i++) {
+                    int keyLength = (int) readLong();
+                    ensureCapacity(size + 1);
+                    keyOffsets[size] = position;
+                    keyLengths[size] = keyLength;
+                    keyHashes[size] = hash(data, position, keyLength);
+                    position += keyLength;
+                    valueOffsets[size] = position;
+                    skip(STATE_SCHEMA);
+                    valueEnds[size] = position;
+                    size++;
+                }
+            }
+            buildTable();
+        } catch (RuntimeException e) {
+            throw new SerializationException("Ошибка разбора снапшота из топика " + topic, e);
+        }
+        return this;
+    }
+
+    public String getHubId() {
+        return hubId;
+    }
+
+    public Instant getTimestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает состояние датчика, декодируя его при первом обращении, или {@code null}, если датчика нет в снимке.
+     */
+    public SensorStateAvro getSensorState(String sensorId) {
+        int index = indexOf(sensorId);
+        if (index < 0) {
+            return null;
+        }
+        if (states[index] == null) {
+            try {
+                decoder = DecoderFactory.get().binaryDecoder(data, valueOffsets[index],
+                        valueEnds[index] - valueOffsets[index], decoder);
+                states[index] = stateReader.read(null, decoder);
+            } catch (Exception e) {
+                throw new SerializationException("Ошибка десериализации состояния датчика " + sensorId
+                        + " из топика " + topic, e);
+            }
+        }
+        return states[index];
+    }
+
+    /**
+     * Полностью десериализует снимок.
+     */
+    public SensorsSnapshotAvro toSnapshot() {
+        SensorsSnapshotAvro snapshot = new SensorsSnapshotAvro();
+        snapshot.setHubId(hubId);
+        snapshot.setTimestamp(getTimestamp());
+        snapshot.setSensorsState(HashMap.newHashMap(size));
+        for (int i = 0; i < size; i++) {
+            String sensorId = new String(data, keyOffsets[i], keyLengths[i], StandardCharsets.UTF_8);
+            snapshot.getSensorsState().put(sensorId, getSensorState(sensorId));
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorsSnapshotView{hubId=" + hubId + ", timestamp=" + getTimestamp() + ", sensors=" + size + "}";
+    }
+
+    private void buildTable() {
+        int capacity = INITIAL_CAPACITY * 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        if (table.length < capacity) {
+            table = new int[capacity];
+        } else {
+            Arrays.fill(table, 0, capacity, 0);
+        }
+        tableMask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = spread(keyHashes[i]) & tableMask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & tableMask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private int indexOf(String sensorId) {
+        int length = encode(sensorId);
+        int hash = hash(keyBuffer, 0, length);
+        for (int slot = spread(hash) & tableMask; ; slot = (slot + 1) & tableMask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int i = entry - 1;
+            if (keyHashes[i] == hash && keyLengths[i] == length
+                    && Arrays.equals(data, keyOffsets[i], keyOffsets[i] + length, keyBuffer, 0, length)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Кодирует строку в UTF-8 в {@link #keyBuffer} так же, как {@link String#getBytes}: одиночный суррогат
+     * заменяется на '?'.
+     *
+     * @return число байтов
+     */
+    private int encode(String value) {
+        if (keyBuffer.length < value.length() * 3) {
+            keyBuffer = new byte[value.length() * 3];
+        }
+        byte[] buffer = keyBuffer;
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | c >> 6);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                buffer[length++] = '?';
+            } else {
+                buffer[length++] = (byte) (0xE0 | c >> 12);
+                buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return length;
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    // полиномиальный хеш коротких ключей плохо перемешивает младшие биты, по которым выбирается ячейка
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keyOffsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, keyOffsets.length * 2);
+        keyOffsets = Arrays.copyOf(keyOffsets, newCapacity);
+        keyLengths = Arrays.copyOf(keyLengths, newCapacity);
+        keyHashes = Arrays.copyOf(keyHashes, newCapacity);
+        valueOffsets = Arrays.copyOf(valueOffsets, newCapacity);
+        valueEnds = Arrays.copyOf(valueEnds, newCapacity);
+        states = Arrays.copyOf(states, newCapacity);
+    }
+
+    /**
+     * Пропускает значение указанной схемы, не создавая объектов.
+     */
+    private void skip(Schema schema) {
+        switch (schema.getType()) {
+            case NULL -> {
+            }
+            case BOOLEAN -> position++;
+            case INT, LONG, ENUM -> readLong();
+            case FLOAT -> position += Float.BYTES;
+            case DOUBLE -> position += Double.BYTES;
+            case STRING, BYTES -> skipBytes(readLong());
+            case FIXED -> position += schema.getFixedSize();
+            case RECORD -> {
+                for (Schema.Field field : schema.getFields()) {
+                    skip(field.schema());
+                }
+            }
+            case UNION -> skip(schema.getTypes().get((int) readLong()));
+            case ARRAY -> skipBlocks(schema.getElementType(), false);
+            case MAP -> skipBlocks(schema.getValueType(), true);
+        }
+    }
+
+    private void skipBlocks(Schema itemSchema, boolean map) {
+        for (long count = readLong(); count != 0; count = readLong()) {
+            if (count < 0) {
+                skipBytes(readLong());
+                continue;
+            }
+            for (long i = 0; i < count; i++) {
+                if (map) {
+                    skipBytes(readLong());
+                }
+                skip(itemSchema);
+            }
+        }
+    }
+
+    private void skipBytes(long length) {
+        position += (int) length;
+    }
+
+    private String readString() {
+        int length = (int) readLong();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    // целые в Avro записываются как zigzag varint
+    private long readLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (position >= data.length) {
+                throw new IndexOutOfBoundsException("Неожиданный конец данных на позиции " + position);
+            }
+            b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
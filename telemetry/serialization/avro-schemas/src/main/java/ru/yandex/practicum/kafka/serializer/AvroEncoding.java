@@ -0,0 +1,92 @@
+package ru.yandex.practicum.kafka.serializer;
+
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Кодирование в бинарный формат Avro через буфер и энкодер, закреплённые за потоком.
+ * Результат - массив ровно нужного размера, скопированный из буфера один раз.
+ * Действие не должно рекурсивно вызывать {@link #encode} в том же потоке.
+ */
+public final class AvroEncoding {
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    // буферы крупнее этого размера не удерживаются за потоком после записи
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+
+    private static final ThreadLocal<EncodingBuffer> BUFFERS = ThreadLocal.withInitial(EncodingBuffer::new);
+
+    private AvroEncoding() {
+    }
+
+    @FunctionalInterface
+    public interface EncoderAction {
+        void write(Encoder encoder) throws IOException;
+    }
+
+    public static byte[] encode(EncoderAction action) throws IOException {
+        EncodingBuffer buffer = BUFFERS.get();
+        buffer.out.reset();
+        try {
+            action.write(buffer.encoder);
+            buffer.encoder.flush();
+            return buffer.out.toByteArray();
+        } finally {
+            if (buffer.out.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                BUFFERS.remove();
+            }
+        }
+    }
+
+    private static final class EncodingBuffer {
+        private final ByteArrayOutput out = new ByteArrayOutput(INITIAL_BUFFER_SIZE);
+        private final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    }
+
+    /**
+     * Несинхронизированный аналог {@link java.io.ByteArrayOutputStream}: используется только своим потоком.
+     */
+    private static final class ByteArrayOutput extends OutputStream {
+        private byte[] buf;
+        private int count;
+
+        private ByteArrayOutput(int size) {
+            this.buf = new byte[size];
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(count + 1);
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, minCapacity));
+            }
+        }
+
+        private void reset() {
+            count = 0;
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buf, count);
+        }
+    }
+}
@@ -1,33 +1,38 @@
 package ru.yandex.practicum.kafka.serializer;
 
-import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.Schema;
 import org.apache.avro.io.DatumWriter;
-import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.avro.specific.SpecificRecordBase;
 import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Serializer;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GeneralAvroSerializer implements Serializer<SpecificRecordBase> {
-    private final EncoderFactory encoderFactory = EncoderFactory.get();
-    private BinaryEncoder encoder;
+    private static final byte[] EMPTY = new byte[0];
+
+    // писатели не хранят состояния между вызовами, поэтому один экземпляр на схему разделяется всеми потоками
+    private final Map<Schema, DatumWriter<SpecificRecordBase>> writers = new ConcurrentHashMap<>();
 
     @Override
     public byte[] serialize(String topic, SpecificRecordBase data) {
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            if (data != null) {
-                DatumWriter<SpecificRecordBase> writer = new SpecificDatumWriter<>(data.getSchema());
-                encoder = encoderFactory.binaryEncoder(out, encoder);
-                writer.write(data, encoder);
-                encoder.flush();
-            }
-            return out.toByteArray();
+        if (data == null) {
+            return EMPTY;
+        }
+        DatumWriter<SpecificRecordBase> writer = writers.computeIfAbsent(data.getSchema(), SpecificDatumWriter::new);
+        try {
+            return AvroEncoding.encode(encoder -> writer.write(data, encoder));
         } catch (IOException ex) {
             throw new SerializationException("Ошибка сериализации данных для топика [" + topic + "]", ex);
         }
     }
-}
 
+    @Override
+    public byte[] serialize(String topic, Headers headers, SpecificRecordBase data) {
+        return serialize(topic, data);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.kafka.serializer.GeneralAvroSerializer;
+import ru.yandex.practicum.kafka.telemetry.event.ClimateSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.LightSensorAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorStateAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SensorsSnapshotAvro;
+import ru.yandex.practicum.kafka.telemetry.event.SwitchSensorAvro;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SensorsSnapshotViewTest {
+    private static final String TOPIC = "telemetry.snapshots.v1";
+    private static final Instant TIMESTAMP = Instant.ofEpochMilli(1_700_000_000_000L);
+
+    private final GeneralAvroSerializer serializer = new GeneralAvroSerializer();
+    private final SensorsSnapshotDeserializer deserializer = new SensorsSnapshotDeserializer();
+    private final SensorsSnapshotView view = new SensorsSnapshotView();
+
+    @Test
+    void findsEveryPresentSensorAsFullDecoding() {
+        Map<String, SensorStateAvro> states = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            states.put("sensor-" + i, state(i));
+        }
+        byte[] data = serialize(states);
+        SensorsSnapshotAvro decoded = deserializer.deserialize(TOPIC, data);
+
+        view.wrap(TOPIC, data);
+
+        assertThat(view.getHubId()).isEqualTo(decoded.getHubId());
+        assertThat(view.getTimestamp()).isEqualTo(decoded.getTimestamp());
+        assertThat(view.size()).isEqualTo(100);
+        decoded.getSensorsState().forEach((sensorId, state) ->
+                assertThat(view.getSensorState(sensorId)).isEqualTo(state));
+        assertThat(view.toSnapshot()).isEqualTo(decoded);
+    }
+
+    @Test
+    void returnsNullForMissingSensors() {
+        view.wrap(TOPIC, serialize(Map.of("sensor-1", state(1), "sensor-2", state(2))));
+
+        assertThat(view.getSensorState("sensor-3")).isNull();
+        assertThat(view.getSensorState("sensor-")).isNull();
+        assertThat(view.getSensorState("sensor-10")).isNull();
+        assertThat(view.getSensorState("")).isNull();
+    }
+
+    @Test
+    void findsNonAsciiSensorIds() {
+        Map<String, SensorStateAvro> states = Map.of(
+                "датчик-1", state(1),
+                "capteur-é", state(2),
+                "sensor-🌡", state(3)
+        );
+        view.wrap(TOPIC, serialize(states));
+
+        states.forEach((sensorId, state) -> assertThat(view.getSensorState(sensorId)).isEqualTo(state));
+        assertThat(view.getSensorState("датчик-2")).isNull();
+    }
+
+    @Test
+    void forgetsSensorsOfPreviousSnapshot() {
+        Map<String, SensorStateAvro> first = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            first.put("sensor-" + i, state(i));
+        }
+        view.wrap(TOPIC, serialize(first));
+        assertThat(view.getSensorState("sensor-39")).isNotNull();
+
+        view.wrap(TOPIC, serialize(Map.of("sensor-0", state(7))));
+
+        assertThat(view.size()).isEqualTo(1);
+        assertThat(view.getSensorState("sensor-0")).isEqualTo(state(7));
+        assertThat(view.getSensorState("sensor-39")).isNull();
+    }
+
+    @Test
+    void handlesEmptySnapshot() {
+        view.wrap(TOPIC, serialize(Map.of()));
+
+        assertThat(view.size()).isZero();
+        assertThat(view.getSensorState("sensor-1")).isNull();
+    }
+
+    private byte[] serialize(Map<String, SensorStateAvro> states) {
+        return serializer.serialize(TOPIC, new SensorsSnapshotAvro("hub-1", TIMESTAMP, new HashMap<>(states)));
+    }
+
+    private static SensorStateAvro state(int value) {
+        Object data = switch (value % 3) {
+            case 0 -> new SwitchSensorAvro(value % 2 == 0);
+            case 1 -> new LightSensorAvro(value, value * 10);
+            default -> new ClimateSensorAvro(value, value + 1, value + 2);
+        };
+        return new SensorStateAvro(TIMESTAMP.minusSeconds(value), data);
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+public class ProtobufDeserializer<T extends MessageLite> implements Deserializer<T> {
+    private final Parser<T> parser;
+
+    public ProtobufDeserializer(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return parser.parseFrom(data);
+        } catch (InvalidProtocolBufferException e) {
+            throw new SerializationException("Ошибка десериализации данных из топика " + topic, e);
+        }
+    }
+}
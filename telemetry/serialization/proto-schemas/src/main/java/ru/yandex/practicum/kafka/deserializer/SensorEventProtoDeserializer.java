@@ -0,0 +1,9 @@
+package ru.yandex.practicum.kafka.deserializer;
+
+import ru.yandex.practicum.grpc.telemetry.event.SensorEventProto;
+
+public class SensorEventProtoDeserializer extends ProtobufDeserializer<SensorEventProto> {
+    public SensorEventProtoDeserializer() {
+        super(SensorEventProto.parser());
+    }
+}
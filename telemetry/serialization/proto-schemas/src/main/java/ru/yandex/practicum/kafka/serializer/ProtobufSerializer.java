@@ -0,0 +1,15 @@
+package ru.yandex.practicum.kafka.serializer;
+
+import com.google.protobuf.MessageLite;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class ProtobufSerializer<T extends MessageLite> implements Serializer<T> {
+    // заголовок записи с форматом значения; отсутствует у записей в Avro
+    public static final String FORMAT_HEADER = "value-format";
+    public static final String PROTOBUF_FORMAT = "protobuf";
+
+    @Override
+    public byte[] serialize(String topic, T data) {
+        return data == null ? null : data.toByteArray();
+    }
+}